@@ -17,6 +17,8 @@ plugins {
 
     id("nebula.javadoc-jar") version "17.3.2"
     id("nebula.source-jar") version "17.3.2"
+
+    id("me.champeau.jmh") version "0.6.6"
 }
 
 apply(plugin = "nebula.publish-verification")
@@ -49,6 +51,9 @@ dependencies {
     compileOnly("org.projectlombok:lombok:1.18.22")
     annotationProcessor("org.projectlombok:lombok:1.18.22")
 
+    // MicrometerMigrationMetrics publishes to the registry of the caller, which rewrite-core also brings at runtime
+    compileOnly("io.micrometer:micrometer-core:1.8.4")
+
     implementation("org.openrewrite:rewrite-java:${rewriteVersion}")
     implementation("org.openrewrite:rewrite-groovy:${rewriteVersion}")
     runtimeOnly("org.openrewrite:rewrite-java-11:${rewriteVersion}")
@@ -62,6 +67,8 @@ dependencies {
 
     testImplementation("org.openrewrite:rewrite-test:${rewriteVersion}")
     testImplementation("org.assertj:assertj-core:3.22.0")
+
+    jmhImplementation("dev.gradleplugins:gradle-api:7.4.1")
 }
 
 tasks.named<Test>("test") {
@@ -72,6 +79,51 @@ tasks.named<Test>("test") {
     }
 }
 
+jmh {
+    benchmarkMode.set(listOf("thrpt"))
+    profilers.set(listOf("gc"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+}
+
+tasks.register<JavaExec>("scalingReport") {
+    group = "benchmark"
+    description = "Runs MigrateToProviderApiRecipe over synthetic corpora of increasing size and reports how its cost scales."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openrewrite.starter.benchmarks.ScalingReport")
+    maxHeapSize = "4g"
+    args(
+        layout.buildDirectory.file("reports/scaling/report.md").get().asFile.path,
+        providers.gradleProperty("scalingSizes").getOrElse("50,100,200,400,800"),
+        providers.gradleProperty("scalingProperties").getOrElse("3"),
+        providers.gradleProperty("scalingCallSites").getOrElse("5"),
+        providers.gradleProperty("scalingGroovyRatio").getOrElse("0.5")
+    )
+}
+
+tasks.register<JavaExec>("daemonLatencyReport") {
+    group = "benchmark"
+    description = "Compares migration latency of a new JVM per run with cold and warm ProviderApiMigrationDaemon requests."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openrewrite.starter.benchmarks.DaemonLatencyReport")
+    args(
+        layout.buildDirectory.file("reports/daemon/report.md").get().asFile.path,
+        providers.gradleProperty("daemonTasks").getOrElse("20"),
+        providers.gradleProperty("daemonRequests").getOrElse("5"),
+        providers.gradleProperty("daemonGroovyRatio").getOrElse("0.5")
+    )
+}
+
+tasks.register<Sync>("cliDistribution") {
+    group = "distribution"
+    description = "Copies the recipe jar and its runtime dependencies to build/cli/lib to run ProviderApiMigrationCli without a build tool."
+    from(tasks.named("jar"))
+    from(configurations.runtimeClasspath)
+    into(layout.buildDirectory.dir("cli/lib"))
+}
+
 java {
     sourceCompatibility = JavaVersion.VERSION_1_8
     targetCompatibility = JavaVersion.VERSION_1_8
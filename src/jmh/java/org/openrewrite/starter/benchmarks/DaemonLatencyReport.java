@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.starter.ProviderApiMigrationCli;
+import org.openrewrite.starter.ProviderApiMigrationDaemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the latency of migrating the same synthetic project with a new JVM per run, as the command line does,
+ * and with requests to a {@link ProviderApiMigrationDaemon}: the first request, which creates the parsers and loads
+ * the parser classpath, warm requests that parse everything again with the parsers of the first request, and warm
+ * requests that also reuse the results of unchanged source files.
+ * <p>
+ * Arguments: {@code <report file> [tasks] [requests per mode] [groovy ratio]}
+ */
+public class DaemonLatencyReport {
+
+    public static void main(String[] args) throws Exception {
+        Path report = Paths.get(args.length > 0 ? args[0] : "build/reports/daemon/report.md");
+        int tasks = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        double groovyRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.5;
+
+        ProviderApiCorpus corpus = new ProviderApiCorpus(tasks, 3, 5, groovyRatio);
+        Path workDir = Files.createTempDirectory("daemon-latency");
+        Path projectDir = writeProject(corpus, Files.createDirectories(workDir.resolve("project")));
+        List<Path> classpath = JavaParser.dependenciesFromClasspath("gradle-api");
+        String classpathArgument = classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+
+        List<Long> coldProcess = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            Process cli = java(ProviderApiMigrationCli.class, workDir.resolve("cli.log"), "--classpath", classpathArgument,
+                    "--diff", workDir.resolve("migration.diff").toString(), projectDir.toString());
+            if (cli.waitFor() != 0) {
+                throw new IllegalStateException("The command line failed, see " + workDir.resolve("cli.log"));
+            }
+            coldProcess.add(System.nanoTime() - start);
+        }
+
+        Path portFile = workDir.resolve("daemon.port");
+        Process daemon = java(ProviderApiMigrationDaemon.class, workDir.resolve("daemon.log"), "--port-file", portFile.toString(),
+                "--cache-dir", workDir.resolve("cache").toString(), "--idle-timeout", "600");
+        try {
+            ProviderApiMigrationDaemon.Endpoint endpoint = awaitEndpoint(portFile, daemon);
+            List<Long> firstRequest = Collections.singletonList(request(endpoint, projectDir, classpath, false));
+            List<Long> warm = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                warm.add(request(endpoint, projectDir, classpath, false));
+            }
+            // Records the results the next requests reuse
+            request(endpoint, projectDir, classpath, true);
+            List<Long> warmReused = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                warmReused.add(request(endpoint, projectDir, classpath, true));
+            }
+            ProviderApiMigrationDaemon.stop(endpoint);
+
+            StringBuilder markdown = new StringBuilder()
+                    .append("# Cold versus warm migration latency\n\n")
+                    .append(String.format(Locale.ROOT, "%d source files, Groovy ratio %.2f%n%n", corpus.getFiles(), groovyRatio))
+                    .append("| Mode | Runs | Median (ms) | Min (ms) |\n")
+                    .append("|------|-----:|------------:|---------:|\n")
+                    .append(row("New JVM per run (command line)", coldProcess))
+                    .append(row("Daemon, first request", firstRequest))
+                    .append(row("Daemon, warm parsers", warm))
+                    .append(row("Daemon, warm parsers and reused results", warmReused));
+            markdown.append(String.format(Locale.ROOT, "%nA warm request takes %.1f%% of a run in a new JVM.%n",
+                    100.0 * median(warm) / median(coldProcess)));
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            Files.write(report, markdown.toString().getBytes(StandardCharsets.UTF_8));
+            System.out.println(markdown);
+        } finally {
+            daemon.destroy();
+        }
+    }
+
+    private static Path writeProject(ProviderApiCorpus corpus, Path projectDir) throws IOException {
+        List<String> javaSources = corpus.javaSources();
+        for (int i = 0; i < javaSources.size(); i++) {
+            Files.write(projectDir.resolve("Source" + i + ".java"), javaSources.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> groovySources = corpus.groovySources();
+        for (int i = 0; i < groovySources.size(); i++) {
+            Files.write(projectDir.resolve("Source" + i + ".groovy"), groovySources.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        return projectDir;
+    }
+
+    private static long request(ProviderApiMigrationDaemon.Endpoint endpoint, Path projectDir, List<Path> classpath, boolean reuseResults) throws IOException {
+        long start = System.nanoTime();
+        ProviderApiMigrationDaemon.migrate(endpoint, projectDir, classpath, ProviderApiMigrationDaemon.DEFAULT_BATCH_SIZE, reuseResults, change -> {
+        });
+        return System.nanoTime() - start;
+    }
+
+    private static Process java(Class<?> mainClass, Path log, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        // Module flags the parser needs on newer JDKs
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("--add-")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        Collections.addAll(command, args);
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+    }
+
+    private static ProviderApiMigrationDaemon.Endpoint awaitEndpoint(Path portFile, Process daemon) throws IOException, InterruptedException {
+        while (!Files.exists(portFile)) {
+            if (!daemon.isAlive()) {
+                throw new IllegalStateException("The daemon exited with " + daemon.exitValue());
+            }
+            Thread.sleep(50);
+        }
+        return ProviderApiMigrationDaemon.Endpoint.read(portFile);
+    }
+
+    private static String row(String mode, List<Long> nanos) {
+        return String.format(Locale.ROOT, "| %s | %d | %.1f | %.1f |%n", mode, nanos.size(),
+                median(nanos) / 1_000_000.0, Collections.min(nanos) / 1_000_000.0);
+    }
+
+    private static double median(List<Long> nanos) {
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2.0;
+    }
+}
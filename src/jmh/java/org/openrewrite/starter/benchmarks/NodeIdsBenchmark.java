@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Threads;
+import org.openrewrite.Tree;
+import org.openrewrite.starter.gradle.NodeIds;
+
+import java.util.UUID;
+
+/**
+ * Ids for synthesized nodes, created from several threads at once the way parallel call site rewriting does.
+ */
+@Threads(4)
+public class NodeIdsBenchmark {
+
+    @Benchmark
+    public UUID nodeIds() {
+        return NodeIds.randomId();
+    }
+
+    @Benchmark
+    public UUID treeRandomIdBaseline() {
+        return Tree.randomId();
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.groovy.GroovyParser;
+import org.openrewrite.java.JavaParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a synthetic Gradle plugin code base. Every task produces three source files:
+ * <ul>
+ *     <li>a task with plain {@code @Input} properties, their fields and setters,</li>
+ *     <li>a task already on the Property API together with setter call sites on it
+ *     (in Java the call sites are in a separate plugin class, in Groovy in the same file),</li>
+ *     <li>in Groovy an unrelated helper class, so every task yields the same number of files in both languages.</li>
+ * </ul>
+ * Optionally every task also comes with unrelated classes that have bean getters and setters but no task
+ * properties, to model code bases where the migration touches only a few files.
+ * Tasks are assigned to Groovy evenly according to the Groovy ratio, the rest are Java.
+ */
+public class ProviderApiCorpus {
+
+    private static final String[] PROPERTY_TYPES = {"String", "int", "boolean", "Long"};
+
+    private final int tasks;
+    private final int propertiesPerTask;
+    private final int callSitesPerTask;
+    private final double groovyRatio;
+    private final int unrelatedPerTask;
+
+    public ProviderApiCorpus(int tasks, int propertiesPerTask, int callSitesPerTask, double groovyRatio) {
+        this(tasks, propertiesPerTask, callSitesPerTask, groovyRatio, 0);
+    }
+
+    public ProviderApiCorpus(int tasks, int propertiesPerTask, int callSitesPerTask, double groovyRatio, int unrelatedPerTask) {
+        if (tasks < 0 || propertiesPerTask < 1 || callSitesPerTask < 0 || groovyRatio < 0 || groovyRatio > 1 || unrelatedPerTask < 0) {
+            throw new IllegalArgumentException("Invalid corpus: tasks=" + tasks + ", propertiesPerTask=" + propertiesPerTask +
+                    ", callSitesPerTask=" + callSitesPerTask + ", groovyRatio=" + groovyRatio + ", unrelatedPerTask=" + unrelatedPerTask);
+        }
+        this.tasks = tasks;
+        this.propertiesPerTask = propertiesPerTask;
+        this.callSitesPerTask = callSitesPerTask;
+        this.groovyRatio = groovyRatio;
+        this.unrelatedPerTask = unrelatedPerTask;
+    }
+
+    public int getFiles() {
+        return tasks * (3 + unrelatedPerTask);
+    }
+
+    public boolean isGroovy(int task) {
+        // Spread Groovy tasks evenly instead of putting them all at the start
+        return Math.floor((task + 1) * groovyRatio) > Math.floor(task * groovyRatio);
+    }
+
+    public List<String> javaSources() {
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            if (!isGroovy(i)) {
+                sources.add(plainTask(i, false));
+                sources.add(providerTask(i, false));
+                sources.add(javaPlugin(i));
+                for (int u = 0; u < unrelatedPerTask; u++) {
+                    sources.add(unrelatedClass(i, u, false));
+                }
+            }
+        }
+        return sources;
+    }
+
+    public List<String> groovySources() {
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            if (isGroovy(i)) {
+                sources.add(plainTask(i, true));
+                sources.add(providerTask(i, true) + "\n" + groovyPlugin(i));
+                sources.add(groovyHelper(i));
+                for (int u = 0; u < unrelatedPerTask; u++) {
+                    sources.add(unrelatedClass(i, u, true));
+                }
+            }
+        }
+        return sources;
+    }
+
+    public List<SourceFile> parse() {
+        ExecutionContext ctx = new InMemoryExecutionContext(Throwable::printStackTrace);
+        List<SourceFile> sourceFiles = new ArrayList<>(getFiles());
+        List<String> javaSources = javaSources();
+        if (!javaSources.isEmpty()) {
+            sourceFiles.addAll(JavaParser.fromJavaVersion()
+                    .classpath("gradle-api")
+                    .build()
+                    .parse(ctx, javaSources.toArray(new String[0])));
+        }
+        List<String> groovySources = groovySources();
+        if (!groovySources.isEmpty()) {
+            sourceFiles.addAll(GroovyParser.builder()
+                    .classpath("gradle-api")
+                    .build()
+                    .parse(ctx, groovySources.toArray(new String[0])));
+        }
+        if (sourceFiles.size() != getFiles()) {
+            throw new IllegalStateException("Expected " + getFiles() + " source files, but parsed " + sourceFiles.size());
+        }
+        return sourceFiles;
+    }
+
+    private String plainTask(int task, boolean groovy) {
+        String semicolon = groovy ? "" : ";";
+        String visibility = groovy ? "" : "public ";
+        StringBuilder source = new StringBuilder()
+                .append("import org.gradle.api.tasks.Input").append(semicolon).append("\n\n")
+                .append("class PlainTask").append(task).append(" {\n");
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("    private ").append(propertyType(p)).append(" property").append(p).append(semicolon).append("\n");
+        }
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("\n")
+                    .append("    @Input\n")
+                    .append("    ").append(visibility).append(propertyType(p)).append(" getProperty").append(p).append("() {\n")
+                    .append("        return property").append(p).append(semicolon).append("\n")
+                    .append("    }\n")
+                    .append("\n")
+                    .append("    ").append(visibility).append("void setProperty").append(p).append("(").append(propertyType(p)).append(" value) {\n")
+                    .append("        this.property").append(p).append(" = value").append(semicolon).append("\n")
+                    .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private String providerTask(int task, boolean groovy) {
+        String semicolon = groovy ? "" : ";";
+        String visibility = groovy ? "" : "public ";
+        StringBuilder source = new StringBuilder()
+                .append("import org.gradle.api.provider.Property").append(semicolon).append("\n")
+                .append("import org.gradle.api.tasks.Input").append(semicolon).append("\n\n")
+                .append("class ProviderTask").append(task).append(" {\n");
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("    private final Property<").append(boxedPropertyType(p)).append("> property").append(p).append(" = null").append(semicolon).append("\n");
+        }
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("\n")
+                    .append("    @Input\n")
+                    .append("    ").append(visibility).append("Property<").append(boxedPropertyType(p)).append("> getProperty").append(p).append("() {\n")
+                    .append("        return property").append(p).append(semicolon).append("\n")
+                    .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private String javaPlugin(int task) {
+        StringBuilder source = new StringBuilder()
+                .append("class Plugin").append(task).append(" {\n")
+                .append("    public void apply() {\n")
+                .append("        ProviderTask").append(task).append(" task = new ProviderTask").append(task).append("();\n");
+        for (int c = 0; c < callSitesPerTask; c++) {
+            int p = c % propertiesPerTask;
+            source.append("        task.setProperty").append(p).append("(").append(value(p, c)).append(");\n");
+        }
+        return source.append("    }\n").append("}\n").toString();
+    }
+
+    private String groovyPlugin(int task) {
+        StringBuilder source = new StringBuilder()
+                .append("class Plugin").append(task).append(" {\n")
+                .append("    void apply() {\n")
+                .append("        ProviderTask").append(task).append(" task = new ProviderTask").append(task).append("()\n");
+        for (int c = 0; c < callSitesPerTask; c++) {
+            int p = c % propertiesPerTask;
+            source.append("        task.setProperty").append(p).append("(").append(value(p, c)).append(")\n");
+        }
+        return source.append("    }\n").append("}\n").toString();
+    }
+
+    private String groovyHelper(int task) {
+        return "class Helper" + task + " {\n" +
+                "    String describe(String name) {\n" +
+                "        return \"task \" + name\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    private String unrelatedClass(int task, int index, boolean groovy) {
+        String semicolon = groovy ? "" : ";";
+        String visibility = groovy ? "" : "public ";
+        StringBuilder source = new StringBuilder()
+                .append("class Service").append(task).append("_").append(index).append(" {\n");
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("    private ").append(propertyType(p)).append(" setting").append(p).append(semicolon).append("\n");
+        }
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("\n")
+                    .append("    ").append(visibility).append(propertyType(p)).append(" getSetting").append(p).append("() {\n")
+                    .append("        return setting").append(p).append(semicolon).append("\n")
+                    .append("    }\n")
+                    .append("\n")
+                    .append("    ").append(visibility).append("void setSetting").append(p).append("(").append(propertyType(p)).append(" value) {\n")
+                    .append("        this.setting").append(p).append(" = value").append(semicolon).append("\n")
+                    .append("    }\n");
+        }
+        source.append("\n")
+                .append("    ").append(visibility).append("void reset() {\n");
+        for (int p = 0; p < propertiesPerTask; p++) {
+            source.append("        setSetting").append(p).append("(").append(value(p, index)).append(")").append(semicolon).append("\n");
+        }
+        return source.append("    }\n").append("}\n").toString();
+    }
+
+    private static String propertyType(int property) {
+        return PROPERTY_TYPES[property % PROPERTY_TYPES.length];
+    }
+
+    private static String boxedPropertyType(int property) {
+        switch (propertyType(property)) {
+            case "int":
+                return "Integer";
+            case "boolean":
+                return "Boolean";
+            default:
+                return propertyType(property);
+        }
+    }
+
+    private static String value(int property, int callSite) {
+        switch (propertyType(property)) {
+            case "String":
+                return "\"value" + callSite + "\"";
+            case "int":
+                return String.valueOf(callSite);
+            case "boolean":
+                return callSite % 2 == 0 ? "true" : "false";
+            default:
+                return callSite + "L";
+        }
+    }
+}
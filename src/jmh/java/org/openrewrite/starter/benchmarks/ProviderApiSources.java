@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openrewrite.SourceFile;
+
+import java.util.List;
+
+/**
+ * Small fixed-size {@link ProviderApiCorpus} for the JMH benchmarks. Every language produces {@link #FILES} source files,
+ * {@code mixed} half of them in Java and half in Groovy, so a single run visits both languages.
+ */
+public class ProviderApiSources {
+
+    public static final int TASKS = 10;
+    public static final int FILES = TASKS * 3;
+
+    private ProviderApiSources() {
+    }
+
+    public static List<SourceFile> parse(String language) {
+        return corpus(language).parse();
+    }
+
+    public static ProviderApiCorpus corpus(String language) {
+        if ("java".equals(language)) {
+            return new ProviderApiCorpus(TASKS, 2, 2, 0);
+        }
+        if ("groovy".equals(language)) {
+            return new ProviderApiCorpus(TASKS, 2, 2, 1);
+        }
+        if ("mixed".equals(language)) {
+            return new ProviderApiCorpus(TASKS, 2, 2, 0.5);
+        }
+        throw new IllegalArgumentException("Unknown language " + language);
+    }
+}
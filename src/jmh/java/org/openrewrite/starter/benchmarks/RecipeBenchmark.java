@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.starter.CollectTaskPlainPropertiesRecipe;
+import org.openrewrite.starter.EstimateProviderApiMigrationRecipe;
+import org.openrewrite.starter.MigratePropertySetInvocationsRecipe;
+import org.openrewrite.starter.MigrateTaskPropertiesToProviderApiRecipe;
+import org.openrewrite.starter.MigrateToProviderApiRecipe;
+import org.openrewrite.starter.metrics.InMemoryMigrationMetrics;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.util.List;
+
+/**
+ * Throughput of every recipe on its own, of the fused {@link MigrateToProviderApiRecipe}, of the
+ * three recipes chained with {@code doNext} and of the read-only {@link EstimateProviderApiMigrationRecipe}.
+ * Scores are per source file, run with {@code -prof gc} to get the allocation rate per file. The fused recipe and
+ * the chain also report how many times they traversed a source file, divide {@code filesTraversed} by
+ * {@code filesMigrated} to get the traversals per source file.
+ */
+@OperationsPerInvocation(ProviderApiSources.FILES)
+public class RecipeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Sources {
+        @Param({"java", "groovy", "mixed"})
+        String language;
+
+        List<SourceFile> sourceFiles;
+
+        @Setup(Level.Trial)
+        public void parse() {
+            sourceFiles = ProviderApiSources.parse(language);
+        }
+    }
+
+    /**
+     * An execution context in which the plain properties are already collected, so the migration recipes
+     * can be measured without the collection phase.
+     */
+    @State(Scope.Thread)
+    public static class Collected {
+        ExecutionContext ctx;
+
+        @Setup(Level.Invocation)
+        public void collect(Sources sources) {
+            ctx = new InMemoryExecutionContext();
+            new CollectTaskPlainPropertiesRecipe().run(sources.sourceFiles, ctx);
+        }
+    }
+
+    /**
+     * Counts the source file traversals of every visitor of a run, summed over the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traversals {
+        public long filesTraversed;
+        public long filesMigrated;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            filesTraversed = 0;
+            filesMigrated = 0;
+        }
+
+        List<Result> run(Recipe recipe, List<SourceFile> sourceFiles) {
+            ExecutionContext ctx = new InMemoryExecutionContext();
+            InMemoryMigrationMetrics metrics = new InMemoryMigrationMetrics();
+            MigrationMetrics.install(ctx, metrics);
+            List<Result> results = recipe.run(sourceFiles, ctx);
+            filesTraversed += metrics.getCount(MigrationMetrics.Counter.FILES_TRAVERSED);
+            filesMigrated += sourceFiles.size();
+            return results;
+        }
+    }
+
+    @Benchmark
+    public List<Result> collectTaskPlainProperties(Sources sources) {
+        return new CollectTaskPlainPropertiesRecipe().run(sources.sourceFiles, new InMemoryExecutionContext());
+    }
+
+    @Benchmark
+    public List<Result> migrateTaskPropertiesToProviderApi(Sources sources, Collected collected) {
+        return new MigrateTaskPropertiesToProviderApiRecipe().run(sources.sourceFiles, collected.ctx);
+    }
+
+    @Benchmark
+    public List<Result> migratePropertySetInvocations(Sources sources, Collected collected) {
+        return new MigratePropertySetInvocationsRecipe().run(sources.sourceFiles, collected.ctx);
+    }
+
+    @Benchmark
+    public List<Result> migrateToProviderApi(Sources sources, Traversals traversals) {
+        return traversals.run(new MigrateToProviderApiRecipe(), sources.sourceFiles);
+    }
+
+    @Benchmark
+    public List<Result> migrateToProviderApiChain(Sources sources, Traversals traversals) {
+        return traversals.run(chain(), sources.sourceFiles);
+    }
+
+    @Benchmark
+    public List<Result> estimateProviderApiMigration(Sources sources) {
+        return new EstimateProviderApiMigrationRecipe().run(sources.sourceFiles, new InMemoryExecutionContext());
+    }
+
+    private static Recipe chain() {
+        Recipe chain = new Recipe() {
+            @Override
+            public String getDisplayName() {
+                return "Migrate Gradle task to the Provider API with chained recipes";
+            }
+        };
+        chain.doNext(new CollectTaskPlainPropertiesRecipe());
+        chain.doNext(new MigrateTaskPropertiesToProviderApiRecipe());
+        chain.doNext(new MigratePropertySetInvocationsRecipe());
+        return chain;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.starter.gradle.AccessorName;
+import org.openrewrite.starter.gradle.GradleConstants;
+import org.openrewrite.starter.gradle.RecipeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The helpers in {@link RecipeUtils} that run for every visited method and field. The regex based
+ * {@code typePatternBaseline} is the type check the helpers used before {@code TypeMatcher}, and
+ * {@code accessorToFieldBaseline} is the string replacing name conversion used before {@link AccessorName}.
+ */
+@State(Scope.Benchmark)
+public class RecipeUtilsBenchmark {
+
+    private static final Pattern PROPERTY_PATTERN = Pattern.compile(GradleConstants.PROPERTY_FQ);
+
+    List<J.MethodDeclaration> methods;
+    List<J.VariableDeclarations> fields;
+    List<JavaType> types;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        methods = new ArrayList<>();
+        fields = new ArrayList<>();
+        types = new ArrayList<>();
+        JavaIsoVisitor<ExecutionContext> collector = new JavaIsoVisitor<ExecutionContext>() {
+            @Override
+            public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
+                methods.add(method);
+                if (method.getReturnTypeExpression() != null && method.getReturnTypeExpression().getType() != null) {
+                    types.add(method.getReturnTypeExpression().getType());
+                }
+                return super.visitMethodDeclaration(method, executionContext);
+            }
+
+            @Override
+            public J.VariableDeclarations visitVariableDeclarations(J.VariableDeclarations multiVariable, ExecutionContext executionContext) {
+                fields.add(multiVariable);
+                return super.visitVariableDeclarations(multiVariable, executionContext);
+            }
+        };
+        for (SourceFile sourceFile : ProviderApiSources.parse("java")) {
+            collector.visit(sourceFile, new InMemoryExecutionContext());
+        }
+    }
+
+    @Benchmark
+    public void isGetterForPlainProperty(Blackhole blackhole) {
+        for (J.MethodDeclaration method : methods) {
+            blackhole.consume(RecipeUtils.isGetterForPlainProperty(method));
+        }
+    }
+
+    @Benchmark
+    public void isVariableForPlainProperty(Blackhole blackhole) {
+        for (J.VariableDeclarations field : fields) {
+            blackhole.consume(RecipeUtils.isVariableForPlainProperty(field));
+        }
+    }
+
+    @Benchmark
+    public void accessorToField(Blackhole blackhole) {
+        for (J.MethodDeclaration method : methods) {
+            AccessorName accessor = AccessorName.of(method.getSimpleName());
+            if (accessor.isAccessor()) {
+                blackhole.consume(accessor.getPropertyName());
+            }
+        }
+    }
+
+    @Benchmark
+    public void accessorToFieldBaseline(Blackhole blackhole) {
+        for (J.MethodDeclaration method : methods) {
+            String name = method.getSimpleName();
+            if (name.startsWith("set")) {
+                String property = name.replace("set", "");
+                blackhole.consume(property.substring(0, 1).toLowerCase() + property.substring(1));
+            } else if (name.startsWith("get") || name.startsWith("is")) {
+                String property = name.replace("get", "").replace("is", "");
+                blackhole.consume(property.substring(0, 1).toLowerCase() + property.substring(1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void typeMatcher(Blackhole blackhole) {
+        for (JavaType type : types) {
+            blackhole.consume(GradleConstants.PROPERTY_MATCHER.matches(type));
+        }
+    }
+
+    @Benchmark
+    public void typePatternBaseline(Blackhole blackhole) {
+        for (JavaType type : types) {
+            blackhole.consume(type.isAssignableFrom(PROPERTY_PATTERN));
+        }
+    }
+}
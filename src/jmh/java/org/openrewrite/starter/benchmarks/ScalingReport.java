@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.starter.MigrateToProviderApiRecipe;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs {@link MigrateToProviderApiRecipe} over synthetic corpora of increasing size and reports wall time,
+ * peak heap and GC time per size, and whether the cost per source file stays flat.
+ * <p>
+ * Arguments: {@code <report file> [tasks,tasks,...] [properties per task] [call sites per task] [groovy ratio]}
+ */
+public class ScalingReport {
+
+    /**
+     * Cost per file may grow by this factor between the smallest and the largest corpus and still count as linear.
+     */
+    private static final double LINEAR_TOLERANCE = 1.5;
+
+    public static void main(String[] args) throws IOException {
+        Path report = Paths.get(args.length > 0 ? args[0] : "build/reports/scaling/report.md");
+        String[] sizes = (args.length > 1 ? args[1] : "50,100,200,400,800").split(",");
+        int propertiesPerTask = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int callSitesPerTask = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        double groovyRatio = args.length > 4 ? Double.parseDouble(args[4]) : 0.5;
+
+        // Warm up on the smallest size, so the first measurement isn't dominated by class loading and JIT
+        run(new ProviderApiCorpus(Integer.parseInt(sizes[0].trim()), propertiesPerTask, callSitesPerTask, groovyRatio));
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (String size : sizes) {
+            ProviderApiCorpus corpus = new ProviderApiCorpus(Integer.parseInt(size.trim()), propertiesPerTask, callSitesPerTask, groovyRatio);
+            Measurement measurement = run(corpus);
+            System.out.println(measurement.toRow());
+            measurements.add(measurement);
+        }
+
+        StringBuilder markdown = new StringBuilder()
+                .append("# MigrateToProviderApiRecipe scaling\n\n")
+                .append(String.format(Locale.ROOT, "Properties per task: %d, call sites per task: %d, Groovy ratio: %.2f%n%n",
+                        propertiesPerTask, callSitesPerTask, groovyRatio))
+                .append("| Tasks | Files | Changed | Wall time (ms) | Per file (ms) | Peak heap (MB) | GC time (ms) |\n")
+                .append("|------:|------:|--------:|---------------:|--------------:|---------------:|-------------:|\n");
+        for (Measurement measurement : measurements) {
+            markdown.append(measurement.toRow()).append("\n");
+        }
+        double growth = measurements.get(measurements.size() - 1).perFileMillis() / measurements.get(0).perFileMillis();
+        markdown.append(String.format(Locale.ROOT, "%nCost per file grew %.2fx from the smallest to the largest corpus: %s.%n",
+                growth, growth <= LINEAR_TOLERANCE ? "linear" : "NOT linear"));
+
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        Files.write(report, markdown.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println(markdown);
+    }
+
+    private static Measurement run(ProviderApiCorpus corpus) {
+        List<SourceFile> sourceFiles = corpus.parse();
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+        List<Result> results = new MigrateToProviderApiRecipe().run(sourceFiles, new InMemoryExecutionContext(Throwable::printStackTrace));
+        long wallNanos = System.nanoTime() - start;
+        long gcMillis = gcMillis() - gcBefore;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        return new Measurement(corpus.getFiles() / 3, sourceFiles.size(), results.size(), wallNanos, peakHeap, gcMillis);
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static class Measurement {
+        private final int tasks;
+        private final int files;
+        private final int changed;
+        private final long wallNanos;
+        private final long peakHeapBytes;
+        private final long gcMillis;
+
+        private Measurement(int tasks, int files, int changed, long wallNanos, long peakHeapBytes, long gcMillis) {
+            this.tasks = tasks;
+            this.files = files;
+            this.changed = changed;
+            this.wallNanos = wallNanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.gcMillis = gcMillis;
+        }
+
+        private double perFileMillis() {
+            return wallNanos / 1_000_000.0 / files;
+        }
+
+        private String toRow() {
+            return String.format(Locale.ROOT, "| %d | %d | %d | %.1f | %.3f | %.1f | %d |",
+                    tasks, files, changed, wallNanos / 1_000_000.0, perFileMillis(), peakHeapBytes / (1024.0 * 1024.0), gcMillis);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.starter.CollectTaskPlainPropertiesRecipe;
+import org.openrewrite.starter.MigrateTaskPropertiesToProviderApiRecipe;
+import org.openrewrite.starter.MigrateTaskPropertiesToProviderApiVisitor;
+import org.openrewrite.starter.MigrateToProviderApiRecipe;
+
+import java.util.List;
+
+/**
+ * The recipes on a code base where only a few files need migrating: two tasks with their plugins among
+ * classes that have bean accessors but no task properties. Scores are per source file.
+ */
+@OperationsPerInvocation(UnaffectedSourcesBenchmark.FILES)
+public class UnaffectedSourcesBenchmark {
+
+    static final int TASKS = 2;
+    static final int UNRELATED_PER_TASK = 12;
+    static final int FILES = TASKS * (3 + UNRELATED_PER_TASK);
+
+    @State(Scope.Benchmark)
+    public static class Sources {
+        List<SourceFile> sourceFiles;
+
+        @Setup(Level.Trial)
+        public void parse() {
+            sourceFiles = new ProviderApiCorpus(TASKS, 2, 2, 0, UNRELATED_PER_TASK).parse();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Collected {
+        ExecutionContext ctx;
+
+        @Setup(Level.Invocation)
+        public void collect(Sources sources) {
+            ctx = new InMemoryExecutionContext();
+            new CollectTaskPlainPropertiesRecipe().run(sources.sourceFiles, ctx);
+        }
+    }
+
+    /**
+     * Plain properties collected once, for measuring the migration visitor without the recipe scheduler.
+     */
+    @State(Scope.Benchmark)
+    public static class CollectedOnce {
+        ExecutionContext ctx;
+
+        @Setup(Level.Trial)
+        public void collect(Sources sources) {
+            ctx = new InMemoryExecutionContext();
+            new CollectTaskPlainPropertiesRecipe().run(sources.sourceFiles, ctx);
+        }
+    }
+
+    @Benchmark
+    public void migrateTaskPropertiesVisitor(Sources sources, CollectedOnce collected, Blackhole blackhole) {
+        for (SourceFile sourceFile : sources.sourceFiles) {
+            blackhole.consume(new MigrateTaskPropertiesToProviderApiVisitor().visit(sourceFile, collected.ctx));
+        }
+    }
+
+    @Benchmark
+    public List<Result> migrateTaskPropertiesToProviderApi(Sources sources, Collected collected) {
+        return new MigrateTaskPropertiesToProviderApiRecipe().run(sources.sourceFiles, collected.ctx);
+    }
+
+    @Benchmark
+    public List<Result> migrateToProviderApi(Sources sources) {
+        return new MigrateToProviderApiRecipe().run(sources.sourceFiles, new InMemoryExecutionContext());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Parses source files batch by batch, every source file with the first parser that accepts it. Parsers are reset
+ * between batches, but the compiler keeps the symbols of every class it compiled until the parser is dropped, so the
+ * parsers are created again every {@code batchesPerParser} batches. Not thread safe, every thread needs its own.
+ */
+class BatchParser {
+
+    private final List<Supplier<? extends Parser<?>>> parserFactories;
+    private final int batchesPerParser;
+
+    @Nullable
+    private final Path relativeTo;
+
+    private List<Parser<?>> parsers = Collections.emptyList();
+    private int batchesParsed;
+
+    BatchParser(List<? extends Supplier<? extends Parser<?>>> parserFactories, int batchesPerParser, @Nullable Path relativeTo) {
+        this.parserFactories = new ArrayList<>(parserFactories);
+        this.batchesPerParser = batchesPerParser;
+        this.relativeTo = relativeTo;
+    }
+
+    static Parser.Input input(Path path) {
+        return new Parser.Input(path, () -> {
+            try {
+                return Files.newInputStream(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Source files no parser accepts are ignored.
+     */
+    List<SourceFile> parse(List<Parser.Input> inputs, ExecutionContext ctx) {
+        return parse(inputs, Collections.emptyList(), ctx);
+    }
+
+    /**
+     * Parses the source files together with the source files they depend on, which attributes the types declared in
+     * the dependencies. Only the source files of the batch are returned.
+     */
+    List<SourceFile> parse(List<Parser.Input> inputs, List<Parser.Input> dependencies, ExecutionContext ctx) {
+        if (inputs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (batchesParsed++ % batchesPerParser == 0) {
+            parsers = new ArrayList<>(parserFactories.size());
+            for (Supplier<? extends Parser<?>> parserFactory : parserFactories) {
+                parsers.add(parserFactory.get());
+            }
+        }
+        List<SourceFile> sourceFiles = new ArrayList<>(inputs.size());
+        Set<Parser.Input> remaining = new LinkedHashSet<>(inputs);
+        Set<Parser.Input> remainingDependencies = new LinkedHashSet<>(dependencies);
+        Set<Path> dependencyPaths = new HashSet<>();
+        for (Parser.Input dependency : dependencies) {
+            dependencyPaths.add(dependency.getRelativePath(relativeTo));
+        }
+        for (Parser<?> parser : parsers) {
+            List<Parser.Input> accepted = accept(parser, remaining);
+            if (!accepted.isEmpty()) {
+                accepted.addAll(accept(parser, remainingDependencies));
+                // The second pass parses the same classes again, the compiler must forget them first
+                parser.reset();
+                for (SourceFile sourceFile : parser.parseInputs(accepted, relativeTo, ctx)) {
+                    if (!dependencyPaths.contains(sourceFile.getSourcePath())) {
+                        sourceFiles.add(sourceFile);
+                    }
+                }
+            }
+        }
+        return sourceFiles;
+    }
+
+    private static List<Parser.Input> accept(Parser<?> parser, Set<Parser.Input> inputs) {
+        List<Parser.Input> accepted = new ArrayList<>();
+        for (Iterator<Parser.Input> it = inputs.iterator(); it.hasNext(); ) {
+            Parser.Input input = it.next();
+            if (parser.accept(input.getPath())) {
+                accepted.add(input);
+                it.remove();
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Drops the parsers and everything their compilers keep.
+     */
+    void close() {
+        parsers = Collections.emptyList();
+        batchesParsed = 0;
+    }
+}
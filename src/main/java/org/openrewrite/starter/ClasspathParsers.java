@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.Parser;
+import org.openrewrite.groovy.GroovyParser;
+import org.openrewrite.java.JavaParser;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The Java and Groovy parsers of one classpath. Every call of a parser factory builds a new parser, so every migration
+ * starts with a fresh compiler and {@link BatchParser} still drops it every {@code batchesPerParser} batches: compilers
+ * keep the symbols of every class they compiled, which must not leak from one project into another declaring classes
+ * of the same name. Only the classpath is shared. Thread safe, the migrations of one classpath
+ * running concurrently share one instance. {@link WarmParsers} keeps the parsers of one project between migrations.
+ */
+class ClasspathParsers {
+
+    private final List<Path> classpath;
+
+    ClasspathParsers(List<Path> classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * @return factories that build new parsers on every call.
+     */
+    List<Supplier<? extends Parser<?>>> getParserFactories() {
+        return Arrays.asList(this::newJavaParser, this::newGroovyParser);
+    }
+
+    JavaParser newJavaParser() {
+        return JavaParser.fromJavaVersion().classpath(classpath).build();
+    }
+
+    /**
+     * @return a Groovy parser that also parses Gradle build scripts.
+     */
+    GroovyAndGradleScriptParser newGroovyParser() {
+        return new GroovyAndGradleScriptParser(GroovyParser.builder().classpath(classpath).build());
+    }
+}
@@ -2,13 +2,11 @@ package org.openrewrite.starter;
 
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
 import org.openrewrite.TreeVisitor;
-import org.openrewrite.java.JavaVisitor;
-import org.openrewrite.java.tree.J;
+import org.openrewrite.starter.metrics.MigrationEvents;
 
-import static org.openrewrite.starter.gradle.GradleConstants.PROPERTIES_MESSAGE_PREFIX;
-import static org.openrewrite.starter.gradle.RecipeUtils.getterToField;
-import static org.openrewrite.starter.gradle.RecipeUtils.isGetterForPlainProperty;
+import java.util.List;
 
 public class CollectTaskPlainPropertiesRecipe extends Recipe {
 
@@ -19,22 +17,12 @@ public class CollectTaskPlainPropertiesRecipe extends Recipe {
 
     @Override
     protected TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new JavaVisitor<ExecutionContext>() {
-            @Override
-            public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
-                return (J.ClassDeclaration) super.visitClassDeclaration(classDecl, executionContext);
-            }
+        return new CollectTaskPlainPropertiesVisitor();
+    }
 
-            @Override
-            public J visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
-                method = (J.MethodDeclaration) super.visitMethodDeclaration(method, executionContext);
-                if (isGetterForPlainProperty(method)) {
-                    J.ClassDeclaration classDeclaration = getCursor().firstEnclosing(J.ClassDeclaration.class);
-                    String classFq = classDeclaration.getType().getFullyQualifiedName();
-                    executionContext.putMessageInSet(PROPERTIES_MESSAGE_PREFIX + classFq, getterToField(method));
-                }
-                return method;
-            }
-        };
+    @Override
+    protected List<SourceFile> visit(List<SourceFile> before, ExecutionContext ctx) {
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_COLLECT);
+        return before;
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.starter.gradle.AccessorName;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+import org.openrewrite.starter.gradle.SourceFilePrefilter;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import static org.openrewrite.starter.gradle.RecipeUtils.isGetterForPlainProperty;
+
+/**
+ * Read-only visitor that records every plain `@Input` property of a task class. It never modifies the tree.
+ */
+public class CollectTaskPlainPropertiesVisitor extends JavaVisitor<ExecutionContext> {
+
+    @Nullable
+    private JavaType.FullyQualified currentClass;
+
+    private int collectedInCurrentClass;
+
+    protected MigrationMetrics metrics = MigrationMetrics.NOOP;
+
+    @Override
+    public boolean isAcceptable(SourceFile sourceFile, ExecutionContext executionContext) {
+        if (!super.isAcceptable(sourceFile, executionContext)) {
+            return false;
+        }
+        if (SourceFilePrefilter.from(executionContext).mayDeclarePlainProperties((JavaSourceFile) sourceFile)) {
+            return true;
+        }
+        MigrationMetrics.from(executionContext).increment(MigrationMetrics.Counter.COLLECT_FILES_SKIPPED);
+        return false;
+    }
+
+    @Override
+    public J visitJavaSourceFile(JavaSourceFile cu, ExecutionContext executionContext) {
+        metrics = MigrationMetrics.from(executionContext);
+        metrics.increment(MigrationMetrics.Counter.FILES_TRAVERSED);
+        metrics.increment(MigrationMetrics.Counter.COLLECT_FILES_VISITED);
+        Object event = MigrationEvents.beginSourceFile(executionContext, MigrationEvents.PHASE_COLLECT);
+        try {
+            return super.visitJavaSourceFile(cu, executionContext);
+        } finally {
+            MigrationEvents.endSourceFile(event, MigrationEvents.PHASE_COLLECT, cu);
+        }
+    }
+
+    @Override
+    public J visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
+        long start = metrics.start();
+        JavaType.FullyQualified enclosingClass = currentClass;
+        int collectedInEnclosingClass = collectedInCurrentClass;
+        currentClass = classDecl.getType();
+        collectedInCurrentClass = 0;
+        try {
+            return super.visitClassDeclaration(classDecl, executionContext);
+        } finally {
+            if (collectedInCurrentClass > 0) {
+                metrics.increment(MigrationMetrics.Counter.CLASSES_WITH_PROPERTIES);
+            }
+            currentClass = enclosingClass;
+            collectedInCurrentClass = collectedInEnclosingClass;
+            metrics.stop(MigrationMetrics.Timer.VISIT_CLASS_DECLARATION, start);
+        }
+    }
+
+    @Override
+    public J visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
+        long start = metrics.start();
+        method = (J.MethodDeclaration) super.visitMethodDeclaration(method, executionContext);
+        if (currentClass != null && isGetterForPlainProperty(method)) {
+            collect(currentClass.getFullyQualifiedName(), AccessorName.of(method.getSimpleName()).getPropertyName(), executionContext);
+            collectedInCurrentClass++;
+            metrics.increment(MigrationMetrics.Counter.PROPERTIES_COLLECTED);
+        }
+        metrics.stop(MigrationMetrics.Timer.VISIT_METHOD_DECLARATION, start);
+        return method;
+    }
+
+    protected void collect(String classFq, String property, ExecutionContext executionContext) {
+        PlainPropertyRegistry.from(executionContext).register(classFq).add(property);
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.Parser;
+import org.openrewrite.internal.EncodingDetectingInputStream;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.MigrationResultCache.Declarations;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The classes declared in the collected source files, so a batch can be parsed together with the source files
+ * declaring the types its call sites depend on. A batch then attributes these types like a run with all source files
+ * in memory, without the project's compiled classes on the parser classpath.
+ * <p>
+ * A batch depends on the classes it names that declare or inherit a Property getter or a plain property, on their
+ * supertypes and on the types of their Property getters. Classes are found by simple name, so a name declared in
+ * several packages adds all of its declarations. Receivers whose type is declared in another batch and only reachable
+ * through a class the batch does not depend on stay unattributed. Thread safe.
+ */
+class CrossBatchDependencies {
+
+    private static final int MAGIC = 0x50524345;
+
+    @Nullable
+    private final Path relativeTo;
+
+    private final Map<String, DeclaredClass> classes = new HashMap<>();
+    private final Map<String, List<String>> classesBySimpleName = new HashMap<>();
+    private final Map<String, List<String>> classesBySourcePath = new HashMap<>();
+
+    @Nullable
+    private Set<String> relevant;
+
+    /**
+     * @param relativeTo the directory source paths are relative to, the same the parsers use
+     */
+    CrossBatchDependencies(@Nullable Path relativeTo) {
+        this.relativeTo = relativeTo;
+    }
+
+    /**
+     * Records the classes declared in a collected source file. The first declaration of a class wins.
+     */
+    synchronized void add(Path path, Declarations declarations) {
+        for (Map.Entry<String, List<String>> declared : declarations.getSupertypes().entrySet()) {
+            String classFq = declared.getKey();
+            boolean declaresProperties = declarations.getPlainProperties().containsKey(classFq)
+                    || declarations.getPropertyGetters().containsKey(classFq);
+            put(classFq, path, declaresProperties, declared.getValue(),
+                    declarations.getPropertyTypes().getOrDefault(classFq, Collections.emptyList()));
+        }
+    }
+
+    synchronized void addAll(CrossBatchDependencies other) {
+        synchronized (other) {
+            other.classes.forEach((classFq, declaredClass) -> put(classFq, declaredClass.path, declaredClass.declaresProperties,
+                    declaredClass.supertypes, declaredClass.propertyTypes));
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    synchronized void clear() {
+        classes.clear();
+        classesBySimpleName.clear();
+        classesBySourcePath.clear();
+        relevant = null;
+    }
+
+    /**
+     * @return the source files the batch has to be parsed with, none of them in the batch and none declaring a class
+     * the batch or another of these source files declares.
+     */
+    List<Parser.Input> of(List<Parser.Input> batch) {
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> batchSourcePaths = new HashSet<>();
+        for (Parser.Input input : batch) {
+            batchSourcePaths.add(input.getRelativePath(relativeTo).toString());
+        }
+        Set<String> identifiers = identifiers(batch);
+
+        Map<String, Path> dependencies = new LinkedHashMap<>();
+        synchronized (this) {
+            Set<String> relevant = relevant();
+            Set<String> declared = new HashSet<>();
+            for (String sourcePath : batchSourcePaths) {
+                declared.addAll(classesBySourcePath.getOrDefault(sourcePath, Collections.emptyList()));
+            }
+            Deque<String> pending = new ArrayDeque<>();
+            for (String identifier : new TreeSet<>(identifiers)) {
+                for (String classFq : classesBySimpleName.getOrDefault(identifier, Collections.emptyList())) {
+                    if (relevant.contains(classFq)) {
+                        pending.add(classFq);
+                    }
+                }
+            }
+            Set<String> visited = new HashSet<>();
+            while (!pending.isEmpty()) {
+                String classFq = pending.poll();
+                if (!visited.add(classFq)) {
+                    continue;
+                }
+                DeclaredClass declaredClass = classes.get(classFq);
+                String sourcePath = declaredClass.sourcePath;
+                if (!batchSourcePaths.contains(sourcePath) && !dependencies.containsKey(sourcePath)) {
+                    List<String> inSourceFile = classesBySourcePath.get(sourcePath);
+                    if (!Collections.disjoint(inSourceFile, declared)) {
+                        // Another declaration of the same class is parsed already
+                        continue;
+                    }
+                    declared.addAll(inSourceFile);
+                    dependencies.put(sourcePath, declaredClass.path);
+                }
+                for (String supertype : declaredClass.supertypes) {
+                    pending.addAll(classesBySimpleName.getOrDefault(supertype, Collections.emptyList()));
+                }
+                for (String propertyType : declaredClass.propertyTypes) {
+                    pending.addAll(classesBySimpleName.getOrDefault(propertyType, Collections.emptyList()));
+                }
+            }
+        }
+        List<Parser.Input> inputs = new ArrayList<>(dependencies.size());
+        for (Path path : dependencies.values()) {
+            inputs.add(BatchParser.input(path));
+        }
+        return inputs;
+    }
+
+    synchronized void save(Path file) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(classes.size());
+            for (Map.Entry<String, DeclaredClass> entry : new TreeMap<>(classes).entrySet()) {
+                DeclaredClass declaredClass = entry.getValue();
+                ProviderApiMigrationWorker.writeString(out, entry.getKey());
+                ProviderApiMigrationWorker.writeString(out, declaredClass.path.toString());
+                out.writeBoolean(declaredClass.declaresProperties);
+                writeStrings(out, declaredClass.supertypes);
+                writeStrings(out, declaredClass.propertyTypes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + file, e);
+        }
+    }
+
+    /**
+     * @return the classes saved to the file, or none if there is no such file.
+     */
+    static CrossBatchDependencies load(Path file, @Nullable Path relativeTo) {
+        CrossBatchDependencies dependencies = new CrossBatchDependencies(relativeTo);
+        if (!Files.isRegularFile(file)) {
+            return dependencies;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a dependencies file: " + file);
+            }
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String classFq = ProviderApiMigrationWorker.readString(in);
+                Path path = Paths.get(ProviderApiMigrationWorker.readString(in));
+                boolean declaresProperties = in.readBoolean();
+                dependencies.put(classFq, path, declaresProperties, readStrings(in), readStrings(in));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+        return dependencies;
+    }
+
+    private void put(String classFq, Path path, boolean declaresProperties, List<String> supertypes, List<String> propertyTypes) {
+        // The same source path the parsers put on the source file
+        String sourcePath = (relativeTo == null ? path : relativeTo.relativize(path)).toString();
+        classesBySourcePath.computeIfAbsent(sourcePath, key -> new ArrayList<>()).add(classFq);
+        if (classes.putIfAbsent(classFq, new DeclaredClass(path, sourcePath, declaresProperties, supertypes, propertyTypes)) == null) {
+            classesBySimpleName.computeIfAbsent(simpleName(classFq), simpleName -> new ArrayList<>()).add(classFq);
+        }
+        relevant = null;
+    }
+
+    /**
+     * @return the classes declaring a Property getter or a plain property, and the classes extending them.
+     */
+    private Set<String> relevant() {
+        if (relevant == null) {
+            Set<String> found = new HashSet<>();
+            classes.forEach((classFq, declaredClass) -> {
+                if (declaredClass.declaresProperties) {
+                    found.add(classFq);
+                }
+            });
+            for (boolean changed = true; changed; ) {
+                changed = false;
+                for (Map.Entry<String, DeclaredClass> entry : classes.entrySet()) {
+                    if (!found.contains(entry.getKey()) && extendsAny(entry.getValue(), found)) {
+                        found.add(entry.getKey());
+                        changed = true;
+                    }
+                }
+            }
+            relevant = found;
+        }
+        return relevant;
+    }
+
+    private boolean extendsAny(DeclaredClass declaredClass, Set<String> classFqs) {
+        for (String supertype : declaredClass.supertypes) {
+            for (String classFq : classesBySimpleName.getOrDefault(supertype, Collections.emptyList())) {
+                if (classFqs.contains(classFq)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> identifiers(List<Parser.Input> batch) {
+        Set<String> identifiers = new HashSet<>();
+        for (Parser.Input input : batch) {
+            String source;
+            try (EncodingDetectingInputStream in = input.getSource()) {
+                source = in.readFully();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + input.getPath(), e);
+            }
+            for (int i = 0; i < source.length(); i++) {
+                if (Character.isJavaIdentifierStart(source.charAt(i))) {
+                    int start = i;
+                    while (i + 1 < source.length() && Character.isJavaIdentifierPart(source.charAt(i + 1))) {
+                        i++;
+                    }
+                    identifiers.add(source.substring(start, i + 1));
+                }
+            }
+        }
+        return identifiers;
+    }
+
+    private static String simpleName(String classFq) {
+        return classFq.substring(Math.max(classFq.lastIndexOf('.'), classFq.lastIndexOf('$')) + 1);
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(ProviderApiMigrationWorker.readString(in));
+        }
+        return strings;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            ProviderApiMigrationWorker.writeString(out, value);
+        }
+    }
+
+    private static class DeclaredClass {
+        private final Path path;
+        private final String sourcePath;
+        private final boolean declaresProperties;
+        private final List<String> supertypes;
+        private final List<String> propertyTypes;
+
+        private DeclaredClass(Path path, String sourcePath, boolean declaresProperties, List<String> supertypes, List<String> propertyTypes) {
+            this.path = path;
+            this.sourcePath = sourcePath;
+            this.declaresProperties = declaresProperties;
+            this.supertypes = supertypes;
+            this.propertyTypes = propertyTypes;
+        }
+    }
+}
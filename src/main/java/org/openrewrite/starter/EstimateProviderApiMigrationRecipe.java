@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
+import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.MigrationEstimate;
+import org.openrewrite.starter.metrics.MigrationEvents;
+
+import java.util.List;
+
+/**
+ * Estimates the size of {@link MigrateToProviderApiRecipe} without running it: collects the plain properties like the
+ * migration does, then counts the fields, getters, setters and call sites the migration would change into the
+ * {@link MigrationEstimate} of the execution context. Source files are returned unchanged and no tree is rewritten.
+ */
+@Value
+@EqualsAndHashCode(callSuper = true)
+public class EstimateProviderApiMigrationRecipe extends Recipe {
+
+    @Option(displayName = "Parallelism",
+            description = "Number of worker threads that scan source files. Source files are scanned serially when not set.",
+            example = "4",
+            required = false)
+    @Nullable
+    Integer parallelism;
+
+    public EstimateProviderApiMigrationRecipe() {
+        this(null);
+    }
+
+    @JsonCreator
+    public EstimateProviderApiMigrationRecipe(@Nullable @JsonProperty("parallelism") Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Estimate the migration of Gradle tasks to the Provider API";
+    }
+
+    @Override
+    protected List<SourceFile> visit(List<SourceFile> before, ExecutionContext ctx) {
+        SourceFileVisits.map(before, parallelism, sourceFile ->
+                SourceFileVisits.visit(new CollectTaskPlainPropertiesVisitor(), sourceFile, ctx));
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_COLLECT);
+        MigrationEstimate.from(ctx).addScannedSourceFiles(before.size());
+        SourceFileVisits.map(before, parallelism, sourceFile ->
+                SourceFileVisits.visit(new EstimateProviderApiMigrationVisitor(), sourceFile, ctx));
+        return before;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.Statement;
+import org.openrewrite.starter.gradle.MigrationEstimate;
+import org.openrewrite.starter.gradle.MigrationEstimate.Change;
+import org.openrewrite.starter.gradle.MigrationEstimate.Counts;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry.ClassProperties;
+import org.openrewrite.starter.gradle.SetterResolutionCache;
+import org.openrewrite.starter.gradle.SourceFilePrefilter;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.openrewrite.starter.MigratePropertySetInvocationsVisitor.isPropertySetInvocation;
+import static org.openrewrite.starter.MigrateTaskPropertiesToProviderApiVisitor.isFieldToMigrate;
+import static org.openrewrite.starter.MigrateTaskPropertiesToProviderApiVisitor.isGetterToMigrate;
+import static org.openrewrite.starter.MigrateTaskPropertiesToProviderApiVisitor.isSetterToRemove;
+
+/**
+ * Read-only visitor that counts what {@link MigrateToProviderApiVisitor} would change into the {@link MigrationEstimate},
+ * using the same checks. It never modifies the tree, and source files without changes allocate no counts.
+ */
+public class EstimateProviderApiMigrationVisitor extends JavaVisitor<ExecutionContext> {
+
+    private ClassProperties currentProperties = ClassProperties.NONE;
+
+    private ClassProperties currentInheritedProperties = ClassProperties.NONE;
+
+    @Nullable
+    private String currentClass;
+
+    @Nullable
+    private SetterResolutionCache cache;
+
+    private MigrationMetrics metrics = MigrationMetrics.NOOP;
+
+    /**
+     * Changes of the visited source file, null until the first change.
+     */
+    @Nullable
+    private Counts sourceFileCounts;
+
+    /**
+     * Changes of the visited source file by class, null until the first change.
+     */
+    @Nullable
+    private Map<String, Counts> classCounts;
+
+    @Override
+    public boolean isAcceptable(SourceFile sourceFile, ExecutionContext executionContext) {
+        if (!super.isAcceptable(sourceFile, executionContext)) {
+            return false;
+        }
+        SourceFilePrefilter prefilter = SourceFilePrefilter.from(executionContext);
+        JavaSourceFile cu = (JavaSourceFile) sourceFile;
+        return prefilter.mayDeclareRegisteredClass(cu, PlainPropertyRegistry.from(executionContext))
+                || prefilter.mayCallPropertySetters(cu);
+    }
+
+    @Override
+    public J visitJavaSourceFile(JavaSourceFile cu, ExecutionContext executionContext) {
+        cache = SetterResolutionCache.from(executionContext);
+        metrics = MigrationMetrics.from(executionContext);
+        metrics.increment(MigrationMetrics.Counter.FILES_TRAVERSED);
+        J visited = super.visitJavaSourceFile(cu, executionContext);
+        if (sourceFileCounts != null && classCounts != null) {
+            MigrationEstimate estimate = MigrationEstimate.from(executionContext);
+            estimate.addSourceFile(cu.getSourcePath().toString(), sourceFileCounts);
+            for (Map.Entry<String, Counts> entry : classCounts.entrySet()) {
+                estimate.addClass(entry.getKey(), entry.getValue());
+            }
+            sourceFileCounts = null;
+            classCounts = null;
+        }
+        return visited;
+    }
+
+    @Override
+    public J visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
+        ClassProperties enclosingProperties = currentProperties;
+        ClassProperties enclosingInheritedProperties = currentInheritedProperties;
+        String enclosingClass = currentClass;
+        PlainPropertyRegistry registry = PlainPropertyRegistry.from(executionContext);
+        currentProperties = registry.get(classDecl.getType());
+        currentInheritedProperties = registry.getInherited(classDecl.getType());
+        currentClass = classDecl.getType() == null ? null : classDecl.getType().getFullyQualifiedName();
+        try {
+            if (currentClass != null && !currentInheritedProperties.isEmpty()) {
+                count(currentClass, Change.PROPERTY, currentProperties.size());
+                for (Statement statement : classDecl.getBody().getStatements()) {
+                    if (isSetterToRemove(statement, currentInheritedProperties)) {
+                        count(currentClass, Change.SETTER, 1);
+                    } else if (isFieldToMigrate(statement, currentProperties)) {
+                        count(currentClass, Change.FIELD, 1);
+                    }
+                }
+            }
+            return super.visitClassDeclaration(classDecl, executionContext);
+        } finally {
+            currentProperties = enclosingProperties;
+            currentInheritedProperties = enclosingInheritedProperties;
+            currentClass = enclosingClass;
+        }
+    }
+
+    @Override
+    public J visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
+        if (currentClass != null && isGetterToMigrate(method, currentProperties, currentInheritedProperties)) {
+            count(currentClass, Change.GETTER, 1);
+        }
+        return super.visitMethodDeclaration(method, executionContext);
+    }
+
+    @Override
+    public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+        if (isPropertySetInvocation(method, cache == null ? SetterResolutionCache.from(executionContext) : cache, metrics)) {
+            // Only invocations on an identifier of a fully qualified type are rewritten
+            count(((JavaType.FullyQualified) method.getSelect().getType()).getFullyQualifiedName(), Change.CALL_SITE, 1);
+        }
+        return super.visitMethodInvocation(method, executionContext);
+    }
+
+    private void count(String classFq, Change change, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (sourceFileCounts == null || classCounts == null) {
+            sourceFileCounts = new Counts();
+            classCounts = new HashMap<>();
+        }
+        sourceFileCounts.add(change, count);
+        classCounts.computeIfAbsent(classFq, fq -> new Counts()).add(change, count);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.groovy.GroovyParser;
+import org.openrewrite.groovy.tree.G;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A {@link GroovyParser} that also accepts Gradle build scripts, which are Groovy scripts the {@link GroovyParser}
+ * parses like any other but does not accept by their file name. Build scripts and Groovy source files are parsed by
+ * the same compiler, so call sites in a build script are attributed with the task classes of its batch.
+ */
+class GroovyAndGradleScriptParser implements Parser<G.CompilationUnit> {
+
+    private final GroovyParser groovyParser;
+
+    GroovyAndGradleScriptParser(GroovyParser groovyParser) {
+        this.groovyParser = groovyParser;
+    }
+
+    @Override
+    public List<G.CompilationUnit> parseInputs(Iterable<Input> sources, @Nullable Path relativeTo, ExecutionContext ctx) {
+        return groovyParser.parseInputs(sources, relativeTo, ctx);
+    }
+
+    @Override
+    public boolean accept(Path path) {
+        return groovyParser.accept(path) || path.toString().endsWith(".gradle");
+    }
+
+    @Override
+    public GroovyAndGradleScriptParser reset() {
+        groovyParser.reset();
+        return this;
+    }
+
+    public Path sourcePathFromSourceText(Path prefix, String sourceCode) {
+        return prefix.resolve("file.groovy");
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.starter.gradle.AccessorName;
+import org.openrewrite.starter.gradle.GradleConstants;
+import org.openrewrite.starter.gradle.PropertySetTemplate;
+import org.openrewrite.starter.gradle.RecipeUtils;
+import org.openrewrite.starter.gradle.SetterResolutionCache;
+import org.openrewrite.starter.gradle.SourceFilePrefilter;
+import org.openrewrite.starter.gradle.SourceLanguage;
+import org.openrewrite.starter.gradle.SetterResolutionCache.Resolution;
+import org.openrewrite.starter.gradle.TypeMatcher;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Rewrites `task.setProperty(value)` invocations to `task.getProperty().set(value)`
+ * (or `task.property.set(value)` in Groovy) when the task exposes a Property getter,
+ * declared by the task itself or inherited from a superclass or interface.
+ */
+public class MigratePropertySetInvocationsVisitor extends JavaVisitor<ExecutionContext> {
+
+    /**
+     * Language of the visited source file. A visitor instance visits a single source file,
+     * so this is per-file state and is never shared between files visited in parallel.
+     */
+    private SourceLanguage language = SourceLanguage.JAVA;
+
+    @Nullable
+    private SetterResolutionCache cache;
+
+    private MigrationMetrics metrics = MigrationMetrics.NOOP;
+
+    @Override
+    public boolean isAcceptable(SourceFile sourceFile, ExecutionContext executionContext) {
+        if (!super.isAcceptable(sourceFile, executionContext)) {
+            return false;
+        }
+        if (SourceFilePrefilter.from(executionContext).mayCallPropertySetters((JavaSourceFile) sourceFile)) {
+            return true;
+        }
+        MigrationMetrics.from(executionContext).increment(MigrationMetrics.Counter.REWRITE_FILES_SKIPPED);
+        return false;
+    }
+
+    @Override
+    public J visitJavaSourceFile(JavaSourceFile cu, ExecutionContext executionContext) {
+        language = SourceLanguage.of(cu);
+        cache = SetterResolutionCache.from(executionContext);
+        metrics = MigrationMetrics.from(executionContext);
+        metrics.increment(MigrationMetrics.Counter.FILES_TRAVERSED);
+        metrics.increment(MigrationMetrics.Counter.REWRITE_FILES_VISITED);
+        Object event = MigrationEvents.beginSourceFile(executionContext, MigrationEvents.PHASE_REWRITE_INVOCATIONS);
+        try {
+            return super.visitJavaSourceFile(cu, executionContext);
+        } finally {
+            MigrationEvents.endSourceFile(event, MigrationEvents.PHASE_REWRITE_INVOCATIONS, cu);
+        }
+    }
+
+    @Override
+    public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+        long start = metrics.start();
+        method = (J.MethodInvocation) super.visitMethodInvocation(method, executionContext);
+        method = rewriteSetInvocation(method, language, cache == null ? SetterResolutionCache.from(executionContext) : cache, metrics);
+        metrics.stop(MigrationMetrics.Timer.VISIT_METHOD_INVOCATION, start);
+        return method;
+    }
+
+    static J.MethodInvocation rewriteSetInvocation(J.MethodInvocation method, SourceLanguage language, SetterResolutionCache cache, MigrationMetrics metrics) {
+        PropertySetTemplate template = language.getPropertySetTemplate(findPropertyGetterForSetter(method, cache, metrics));
+        if (template != null) {
+            metrics.increment(MigrationMetrics.Counter.CALL_SITES_REWRITTEN);
+            MigrationEvents.setterRewritten(method.getSelect() == null ? null : method.getSelect().getType(), method.getSimpleName(), template.getGetter().getName());
+            return template.apply(method);
+        }
+        return method;
+    }
+
+    /**
+     * @return whether {@link #rewriteSetInvocation} would rewrite the invocation, without building the rewritten invocation.
+     */
+    static boolean isPropertySetInvocation(J.MethodInvocation method, SetterResolutionCache cache, MigrationMetrics metrics) {
+        return findPropertyGetterForSetter(method, cache, metrics).isResolved();
+    }
+
+    private static Resolution findPropertyGetterForSetter(J.MethodInvocation method, SetterResolutionCache cache, MigrationMetrics metrics) {
+        if (!(method.getSelect() instanceof J.Identifier) || method.getArguments().size() != 1) {
+            return Resolution.NONE;
+        }
+        AccessorName accessor = AccessorName.of(method.getSimpleName());
+        if (accessor.isSetter() && method.getSelect().getType() instanceof JavaType.FullyQualified) {
+            JavaType.FullyQualified type = (JavaType.FullyQualified) method.getSelect().getType();
+            JavaType argumentType = method.getArguments().get(0).getType();
+            // Primitive and boxed arguments share a resolution, the template adapts it to the argument of each call site
+            String parameterType = maybeBoxPrimitive(argumentType);
+            if (parameterType == null) {
+                return Resolution.NONE;
+            }
+            return cache.resolve(type, method.getSimpleName(), parameterType, metrics, () -> resolve(type, accessor.getGetterName(), parameterType));
+        }
+        return Resolution.NONE;
+    }
+
+    private static Resolution resolve(JavaType.FullyQualified type, String getterName, String parameterType) {
+        JavaType.Method getter = findPropertyGetter(type, getterName, TypeMatcher.of(parameterType), new HashSet<>());
+        if (getter == null) {
+            return Resolution.NONE;
+        }
+        // Find a `set` method of the Property<T> interface. We cheat a bit, and we find first `set` method,
+        // the template then sets its parameter type to the type of the argument of each call site.
+        JavaType.Method propertySetterMethod = ((JavaType.FullyQualified) getter.getReturnType()).getMethods().stream()
+                .filter(m -> m.getName().equals("set") && m.getParameterTypes().size() == 1)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Could not find setter for property " + getter.getName()));
+        return new Resolution(getter, propertySetterMethod);
+    }
+
+    /**
+     * Looks for the getter in the type first, then in its superclasses and interfaces. Resolutions are cached per
+     * receiver type, so the hierarchy of a type is only walked once per setter.
+     */
+    private static JavaType.@Nullable Method findPropertyGetter(@Nullable JavaType.FullyQualified type, String getterName,
+                                                                TypeMatcher parameterType, Set<String> visited) {
+        if (type == null || !visited.add(type.getFullyQualifiedName())) {
+            return null;
+        }
+        for (JavaType.Method method : type.getMethods()) {
+            if (isPropertyGetterMatchingSetter(method, getterName, parameterType)) {
+                return method;
+            }
+        }
+        JavaType.Method inherited = findPropertyGetter(type.getSupertype(), getterName, parameterType, visited);
+        for (Iterator<JavaType.FullyQualified> it = type.getInterfaces().iterator(); inherited == null && it.hasNext(); ) {
+            inherited = findPropertyGetter(it.next(), getterName, parameterType, visited);
+        }
+        return inherited;
+    }
+
+    private static boolean isPropertyGetterMatchingSetter(JavaType.Method method, String expectedGetterName, TypeMatcher parameterType) {
+        return method.getName().equals(expectedGetterName)
+                && method.getReturnType() instanceof JavaType.Parameterized
+                && GradleConstants.PROPERTY_MATCHER.matches(method.getReturnType())
+                && parameterType.matches(((JavaType.Parameterized) method.getReturnType()).getTypeParameters().get(0));
+    }
+
+    /**
+     * @return the name of the type a Property type argument is matched against, or null for arguments no Property
+     * setter is resolved for: arrays, type variables, null literals and arguments without a type.
+     */
+    @Nullable
+    private static String maybeBoxPrimitive(@Nullable JavaType maybePrimitive) {
+        if (maybePrimitive instanceof JavaType.Primitive) {
+            return RecipeUtils.findPrimitiveBoxedType((JavaType.Primitive) maybePrimitive);
+        }
+        if (maybePrimitive instanceof JavaType.FullyQualified) {
+            return ((JavaType.FullyQualified) maybePrimitive).getFullyQualifiedName();
+        }
+        return null;
+    }
+}
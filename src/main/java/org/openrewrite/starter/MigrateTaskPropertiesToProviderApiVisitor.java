@@ -0,0 +1,252 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.ListUtils;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.Statement;
+import org.openrewrite.java.tree.TypeTree;
+import org.openrewrite.starter.gradle.AccessorName;
+import org.openrewrite.starter.gradle.NodeIds;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry.ClassProperties;
+import org.openrewrite.starter.gradle.RecipeUtils;
+import org.openrewrite.starter.gradle.SourceFilePrefilter;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.openrewrite.starter.gradle.GradleConstants.PROPERTY_FQ;
+import static org.openrewrite.starter.gradle.GradleConstants.PROPERTY_TYPE;
+import static org.openrewrite.starter.gradle.RecipeUtils.isVariableForPlainProperty;
+import static org.openrewrite.starter.gradle.RecipeUtils.newModifier;
+
+/**
+ * Rewrites field, getter and setter of every collected plain property to the Property API.
+ * Getters and setters overriding those of a migrated superclass or interface are migrated as well.
+ */
+public class MigrateTaskPropertiesToProviderApiVisitor extends JavaVisitor<ExecutionContext> {
+
+    /**
+     * Plain properties of the class declaration currently being visited, resolved once per class declaration.
+     */
+    private ClassProperties currentProperties = ClassProperties.NONE;
+
+    /**
+     * Plain properties the class declaration currently being visited declares or inherits.
+     */
+    private ClassProperties currentInheritedProperties = ClassProperties.NONE;
+
+    protected MigrationMetrics metrics = MigrationMetrics.NOOP;
+
+    @Override
+    public boolean isAcceptable(SourceFile sourceFile, ExecutionContext executionContext) {
+        if (!super.isAcceptable(sourceFile, executionContext)) {
+            return false;
+        }
+        if (mayChange((JavaSourceFile) sourceFile, executionContext)) {
+            return true;
+        }
+        countSkipped(MigrationMetrics.from(executionContext));
+        return false;
+    }
+
+    /**
+     * Cheap check run before a source file is visited, false when visiting it could not change it.
+     */
+    protected boolean mayChange(JavaSourceFile cu, ExecutionContext executionContext) {
+        return SourceFilePrefilter.from(executionContext).mayDeclareRegisteredClass(cu, PlainPropertyRegistry.from(executionContext));
+    }
+
+    protected void countSkipped(MigrationMetrics metrics) {
+        metrics.increment(MigrationMetrics.Counter.MIGRATE_FILES_SKIPPED);
+    }
+
+    @Override
+    public J visitJavaSourceFile(JavaSourceFile cu, ExecutionContext executionContext) {
+        metrics = MigrationMetrics.from(executionContext);
+        metrics.increment(MigrationMetrics.Counter.FILES_TRAVERSED);
+        metrics.increment(MigrationMetrics.Counter.MIGRATE_FILES_VISITED);
+        Object event = MigrationEvents.beginSourceFile(executionContext, getPhase());
+        try {
+            return super.visitJavaSourceFile(cu, executionContext);
+        } finally {
+            MigrationEvents.endSourceFile(event, getPhase(), cu);
+        }
+    }
+
+    /**
+     * The migration phase reported in JFR events for the source files this visitor visits.
+     */
+    protected String getPhase() {
+        return MigrationEvents.PHASE_MIGRATE;
+    }
+
+    @Override
+    public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
+        long start = metrics.start();
+        ClassProperties enclosingProperties = currentProperties;
+        ClassProperties enclosingInheritedProperties = currentInheritedProperties;
+        PlainPropertyRegistry registry = PlainPropertyRegistry.from(executionContext);
+        currentProperties = registry.get(classDecl.getType());
+        currentInheritedProperties = registry.getInherited(classDecl.getType());
+        try {
+            classDecl = (J.ClassDeclaration) super.visitClassDeclaration(classDecl, executionContext);
+            if (currentInheritedProperties.isEmpty()) {
+                // Nothing to migrate in this class, nested classes and call sites were handled by the visit above
+                return classDecl;
+            }
+            // Remove setters and transform plain properties' declaration to Property API
+            List<Statement> statements = classDecl.getBody().getStatements();
+            List<Statement> migrated = ListUtils.map(statements, statement -> isSetterForPlainProperty(statement)
+                    ? null
+                    : transformPropertyVariableDeclaration(statement));
+            // ListUtils.map returns the same list when no statement changed, keep the class declaration as well then
+            return migrated == statements ? classDecl : classDecl.withBody(classDecl.getBody().withStatements(migrated));
+        } finally {
+            currentProperties = enclosingProperties;
+            currentInheritedProperties = enclosingInheritedProperties;
+            metrics.stop(MigrationMetrics.Timer.VISIT_CLASS_DECLARATION, start);
+        }
+    }
+
+    private boolean isSetterForPlainProperty(Statement statement) {
+        if (isSetterToRemove(statement, currentInheritedProperties)) {
+            metrics.increment(MigrationMetrics.Counter.SETTERS_REMOVED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the statement of a class body is a setter of a plain property the class declares or inherits.
+     */
+    static boolean isSetterToRemove(Statement statement, ClassProperties inheritedProperties) {
+        if (!(statement instanceof J.MethodDeclaration)) {
+            return false;
+        }
+        AccessorName accessor = AccessorName.of(((J.MethodDeclaration) statement).getSimpleName());
+        return accessor.isSetter() && inheritedProperties.contains(accessor.getPropertyName());
+    }
+
+    /**
+     * @return whether the statement of a class body is the field of a plain property the class declares.
+     */
+    static boolean isFieldToMigrate(Statement statement, ClassProperties properties) {
+        if (!(statement instanceof J.VariableDeclarations)) {
+            return false;
+        }
+        J.VariableDeclarations variableDeclaration = (J.VariableDeclarations) statement;
+        return isVariableForPlainProperty(variableDeclaration)
+                && properties.contains(variableDeclaration.getVariables().get(0).getSimpleName());
+    }
+
+    private Statement transformPropertyVariableDeclaration(Statement statement) {
+        if (isFieldToMigrate(statement, currentProperties)) {
+            J.VariableDeclarations variableDeclaration = (J.VariableDeclarations) statement;
+            J.VariableDeclarations.NamedVariable variable = variableDeclaration.getVariables().get(0);
+            maybeAddImport(PROPERTY_FQ);
+            // TODO add intialization:
+            // JLeftPadded.withElement(Space.build(" ", Collections.emptyList())), J.MethodInvocation..)
+            metrics.increment(MigrationMetrics.Counter.FIELDS_MIGRATED);
+            variable = variable
+                    .withType(PROPERTY_TYPE);
+            return variableDeclaration
+                    .withTypeExpression(toProperty(variableDeclaration.getTypeExpression()))
+                    .withModifiers(maybeAddFinal(variableDeclaration.getModifiers()))
+                    .withVariables(Collections.singletonList(variable));
+        }
+        return statement;
+    }
+
+    private List<J.Modifier> maybeAddFinal(List<J.Modifier> modifiers) {
+        if (J.Modifier.hasModifier(modifiers, J.Modifier.Type.Final)) {
+            return modifiers;
+        }
+        modifiers = new ArrayList<>(modifiers);
+        modifiers.add(newModifier(J.Modifier.Type.Final));
+        return modifiers;
+    }
+
+    @Override
+    public J visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
+        long start = metrics.start();
+        method = (J.MethodDeclaration) super.visitMethodDeclaration(method, executionContext);
+        if (isGetterForPlainProperty(method)) {
+            maybeAddImport(PROPERTY_FQ);
+            metrics.increment(MigrationMetrics.Counter.GETTERS_MIGRATED);
+            method = method
+                    .withMethodType(toProperty(method.getMethodType()))
+                    .withReturnTypeExpression(toProperty(method.getReturnTypeExpression()));
+        }
+        metrics.stop(MigrationMetrics.Timer.VISIT_METHOD_DECLARATION, start);
+        return method;
+    }
+
+    private boolean isGetterForPlainProperty(J.MethodDeclaration method) {
+        return isGetterToMigrate(method, currentProperties, currentInheritedProperties);
+    }
+
+    /**
+     * @return whether the method is the getter of a plain property the enclosing class declares or inherits.
+     */
+    static boolean isGetterToMigrate(J.MethodDeclaration method, ClassProperties properties, ClassProperties inheritedProperties) {
+        String property = AccessorName.of(method.getSimpleName()).getPropertyName();
+        if (properties.contains(property)) {
+            return RecipeUtils.isGetterForPlainProperty(method);
+        }
+        // Overrides of an inherited getter usually rely on the annotation of the overridden getter
+        return inheritedProperties.contains(property) && RecipeUtils.isPlainGetter(method);
+    }
+
+    private @Nullable TypeTree toProperty(@Nullable TypeTree returnTypeExpression) {
+        if (returnTypeExpression instanceof J.Identifier) {
+            J.Identifier identifier = ((J.Identifier) returnTypeExpression);
+            return identifier
+                    .withSimpleName(RecipeUtils.getPropertyTypeName(identifier.getSimpleName()))
+                    .withType(PROPERTY_TYPE);
+        }
+        if (returnTypeExpression instanceof J.Primitive) {
+            J.Primitive primitive = ((J.Primitive) returnTypeExpression);
+            String boxedType = RecipeUtils.getPrimitiveBoxedSimpleName(primitive.getType());
+            return new J.Identifier(
+                    NodeIds.randomId(),
+                    returnTypeExpression.getPrefix(),
+                    returnTypeExpression.getMarkers(),
+                    RecipeUtils.getPropertyTypeName(boxedType),
+                    PROPERTY_TYPE,
+                    null
+            );
+        }
+        return returnTypeExpression;
+    }
+
+    private JavaType.@Nullable Method toProperty(@Nullable JavaType.Method type) {
+        if (type == null) {
+            return null;
+        }
+        return type.withReturnType(PROPERTY_TYPE);
+    }
+}
@@ -1,17 +1,59 @@
 package org.openrewrite.starter;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
 
+import java.util.List;
+
+/**
+ * Runs the same migration as {@link CollectTaskPlainPropertiesRecipe}, {@link MigrateTaskPropertiesToProviderApiRecipe}
+ * and {@link MigratePropertySetInvocationsRecipe} chained together, but visits every source file only twice:
+ * once with a read-only scan that collects plain properties and once with a single edit pass.
+ */
+@Value
+@EqualsAndHashCode(callSuper = true)
 public class MigrateToProviderApiRecipe extends Recipe {
 
+    @Option(displayName = "Parallelism",
+            description = "Number of worker threads that scan and rewrite source files. Source files are visited serially when not set.",
+            example = "4",
+            required = false)
+    @Nullable
+    Integer parallelism;
+
     public MigrateToProviderApiRecipe() {
-        doNext(new CollectTaskPlainPropertiesRecipe());
-        doNext(new MigrateTaskPropertiesToProviderApiRecipe());
-        doNext(new MigratePropertySetInvocationsRecipe());
+        this(null);
+    }
+
+    @JsonCreator
+    public MigrateToProviderApiRecipe(@Nullable @JsonProperty("parallelism") Integer parallelism) {
+        this.parallelism = parallelism;
     }
 
     @Override
     public String getDisplayName() {
         return "Migrate Gradle task to the Provider API";
     }
+
+    @Override
+    protected List<SourceFile> visit(List<SourceFile> before, ExecutionContext ctx) {
+        // The scan never modifies source files, the plain properties are collected into the registry
+        SourceFileVisits.map(before, parallelism, sourceFile ->
+                SourceFileVisits.visit(new CollectTaskPlainPropertiesVisitor(), sourceFile, ctx));
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_COLLECT);
+        List<SourceFile> after = SourceFileVisits.map(before, parallelism, sourceFile ->
+                SourceFileVisits.visit(new MigrateToProviderApiVisitor(), sourceFile, ctx));
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_MIGRATE_AND_REWRITE_INVOCATIONS);
+        MigrationMetrics.recipeRunFinished(ctx);
+        return after;
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.starter.gradle.SetterResolutionCache;
+import org.openrewrite.starter.gradle.SourceFilePrefilter;
+import org.openrewrite.starter.gradle.SourceLanguage;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import static org.openrewrite.starter.MigratePropertySetInvocationsVisitor.rewriteSetInvocation;
+
+/**
+ * Single edit pass that migrates declarations, getters and setters of plain properties
+ * and rewrites setter invocations at the same time.
+ */
+public class MigrateToProviderApiVisitor extends MigrateTaskPropertiesToProviderApiVisitor {
+
+    private SourceLanguage language = SourceLanguage.JAVA;
+
+    @Nullable
+    private final SetterResolutionCache batchCache;
+
+    @Nullable
+    private SetterResolutionCache cache;
+
+    public MigrateToProviderApiVisitor() {
+        this(null);
+    }
+
+    /**
+     * @param batchCache the resolutions of the source files of one batch, instead of the cache of the execution context,
+     *                   for runners that migrate several batches with one context at the same time
+     */
+    public MigrateToProviderApiVisitor(@Nullable SetterResolutionCache batchCache) {
+        this.batchCache = batchCache;
+    }
+
+    @Override
+    protected boolean mayChange(JavaSourceFile cu, ExecutionContext executionContext) {
+        return super.mayChange(cu, executionContext) || SourceFilePrefilter.from(executionContext).mayCallPropertySetters(cu);
+    }
+
+    @Override
+    protected void countSkipped(MigrationMetrics metrics) {
+        super.countSkipped(metrics);
+        metrics.increment(MigrationMetrics.Counter.REWRITE_FILES_SKIPPED);
+    }
+
+    @Override
+    public J visitJavaSourceFile(JavaSourceFile cu, ExecutionContext executionContext) {
+        language = SourceLanguage.of(cu);
+        cache = batchCache == null ? SetterResolutionCache.from(executionContext) : batchCache;
+        MigrationMetrics.from(executionContext).increment(MigrationMetrics.Counter.REWRITE_FILES_VISITED);
+        return super.visitJavaSourceFile(cu, executionContext);
+    }
+
+    @Override
+    protected String getPhase() {
+        return MigrationEvents.PHASE_MIGRATE_AND_REWRITE_INVOCATIONS;
+    }
+
+    @Override
+    public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+        long start = metrics.start();
+        method = (J.MethodInvocation) super.visitMethodInvocation(method, executionContext);
+        method = rewriteSetInvocation(method, language, cache == null ? SetterResolutionCache.from(executionContext) : cache, metrics);
+        metrics.stop(MigrationMetrics.Timer.VISIT_METHOD_INVOCATION, start);
+        return method;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import lombok.Value;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.ContentAddressedMemo;
+import org.openrewrite.starter.gradle.MigrationResultCache;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Migrates many repositories in one JVM, so JVM startup and JIT warm-up are paid once for all of them. Every repository
+ * gets its own {@link ExecutionContext}, and with it its own property registry and caches, and its own property index
+ * file. Up to {@code concurrency} repositories are migrated at the same time. Every repository is parsed by parsers of
+ * its own, see {@link ClasspathParsers}, so classes of the same name declared differently by two repositories never
+ * meet. The {@link ContentAddressedMemo} is shared by all repositories, with the default limits unless another memo
+ * is set.
+ */
+public class MultiRepositoryMigration {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: MultiRepositoryMigration [options] <repository dir>...",
+            "  --classpath <paths>       classpath to parse the source files with, e.g. the Gradle API",
+            "  --repositories <file>     read the repository directories from a file, one per line",
+            "  --in-place                write the changed files, otherwise only report them",
+            "  --concurrency <n>         repositories migrated at the same time (default: available processors)",
+            "  --batch-size <n>          source files per batch (default 100)",
+            "  --index-dir <dir>         persist the collected properties of every repository between runs",
+            "  --report <file>           write the report to a file instead of standard output");
+
+    private final List<Path> classpath;
+    private final int concurrency;
+    private final int batchSize;
+
+    @Nullable
+    private Path indexDir;
+
+    @Nullable
+    private ContentAddressedMemo memo = new ContentAddressedMemo();
+
+    public MultiRepositoryMigration(List<Path> classpath, int concurrency, int batchSize) {
+        if (concurrency < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Concurrency and batch size must be positive, but were " + concurrency + " and " + batchSize);
+        }
+        this.classpath = classpath;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Keep the collected properties of every repository in an index file in the directory, named after the repository path.
+     */
+    public void setIndexDir(@Nullable Path indexDir) {
+        this.indexDir = indexDir;
+    }
+
+    /**
+     * The memo shared by the repositories, or null to migrate every repository on its own.
+     */
+    public void setMemo(@Nullable ContentAddressedMemo memo) {
+        this.memo = memo;
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+    }
+
+    static int run(String[] args) {
+        List<Path> classpath = Collections.emptyList();
+        List<Path> repositories = new ArrayList<>();
+        boolean inPlace = false;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        int batchSize = 100;
+        Path indexDir = null;
+        Path reportFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--classpath":
+                    classpath = ProviderApiMigrationWorker.splitClasspath(ProviderApiMigrationCli.value(args, ++i));
+                    break;
+                case "--repositories":
+                    repositories.addAll(readRepositories(Paths.get(ProviderApiMigrationCli.value(args, ++i))));
+                    break;
+                case "--in-place":
+                    inPlace = true;
+                    break;
+                case "--concurrency":
+                    concurrency = ProviderApiMigrationCli.number(args, ++i);
+                    break;
+                case "--batch-size":
+                    batchSize = ProviderApiMigrationCli.number(args, ++i);
+                    break;
+                case "--index-dir":
+                    indexDir = Paths.get(ProviderApiMigrationCli.value(args, ++i));
+                    break;
+                case "--report":
+                    reportFile = Paths.get(ProviderApiMigrationCli.value(args, ++i));
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                    }
+                    repositories.add(Paths.get(args[i]));
+            }
+        }
+        if (repositories.isEmpty()) {
+            throw new IllegalArgumentException("Missing repository directories");
+        }
+
+        MultiRepositoryMigration migration = new MultiRepositoryMigration(classpath, concurrency, batchSize);
+        migration.setIndexDir(indexDir);
+        boolean write = inPlace;
+        long start = System.nanoTime();
+        List<RepositoryReport> reports = migration.run(repositories, (repository, change) -> {
+            if (write) {
+                ProviderApiMigrationCli.write(repository.resolve(change.getSourcePath()), change.getAfter());
+            }
+        });
+        String report = report(reports, System.nanoTime() - start);
+        if (reportFile == null) {
+            System.out.print(report);
+        } else {
+            ProviderApiMigrationCli.write(reportFile, report);
+        }
+        return reports.stream().anyMatch(RepositoryReport::isFailed) ? 1 : 0;
+    }
+
+    /**
+     * Migrates the repositories and passes every changed source file to the consumer, together with the repository
+     * it belongs to. The consumer is called concurrently for different repositories and must be thread safe.
+     * A repository that fails to migrate does not stop the others, its report records the failure.
+     *
+     * @return a report per repository, in the order of the repositories
+     */
+    public List<RepositoryReport> run(List<Path> repositories, BiConsumer<Path, SourceFileChange> onChange) {
+        ClasspathParsers parsers = new ClasspathParsers(classpath);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, repositories.size())), runnable -> {
+            Thread thread = new Thread(runnable, "repository-migration-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<RepositoryReport>> futures = new ArrayList<>(repositories.size());
+            for (Path repository : repositories) {
+                Path root = repository.toAbsolutePath().normalize();
+                futures.add(executor.submit(() -> migrate(root, parsers, change -> onChange.accept(root, change))));
+            }
+            List<RepositoryReport> reports = new ArrayList<>(futures.size());
+            for (Future<RepositoryReport> future : futures) {
+                reports.add(future.get());
+            }
+            return reports;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while migrating repositories", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not migrate repositories", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RepositoryReport migrate(Path repository, ClasspathParsers parsers, Consumer<SourceFileChange> onChange) {
+        long start = System.nanoTime();
+        int sourceFiles = 0;
+        try {
+            List<Path> paths = ProviderApiMigrationCli.sourceFiles(repository);
+            sourceFiles = paths.size();
+            StreamingProviderApiMigration migration = new StreamingProviderApiMigration(new MigrateToProviderApiRecipe(),
+                    parsers.getParserFactories(), batchSize, repository);
+            migration.setMemo(memo);
+            if (indexDir != null) {
+                migration.setIndex(PersistentPropertyIndex.load(indexDir.resolve(repositoryFileName(repository, ".idx"))));
+            }
+            ExecutionContext ctx = new InMemoryExecutionContext(Throwable::printStackTrace);
+            int changed = migration.run(paths, ctx, onChange);
+            return new RepositoryReport(repository, sourceFiles, changed, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return new RepositoryReport(repository, sourceFiles, 0, System.nanoTime() - start, String.valueOf(e));
+        }
+    }
+
+    private static String repositoryFileName(Path repository, String extension) {
+        byte[] hash = MigrationResultCache.contentHash(repository.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(String.valueOf(repository.getFileName())).append('-');
+        for (int i = 0; i < 4; i++) {
+            name.append(String.format(Locale.ROOT, "%02x", hash[i]));
+        }
+        return name.append(extension).toString();
+    }
+
+    private static List<Path> readRepositories(Path file) {
+        try {
+            List<Path> repositories = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                    repositories.add(Paths.get(line.trim()));
+                }
+            }
+            return repositories;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read repository list " + file, e);
+        }
+    }
+
+    /**
+     * @return a markdown table with a row per repository and the totals.
+     */
+    static String report(List<RepositoryReport> reports, long wallNanos) {
+        StringBuilder report = new StringBuilder()
+                .append("| Repository | Source files | Changed | Time (ms) | Status |\n")
+                .append("|------------|-------------:|--------:|----------:|--------|\n");
+        int sourceFiles = 0;
+        int changed = 0;
+        long nanos = 0;
+        for (RepositoryReport repository : reports) {
+            report.append(String.format(Locale.ROOT, "| %s | %d | %d | %.1f | %s |%n", repository.getRepository(),
+                    repository.getSourceFiles(), repository.getChangedFiles(), repository.getNanos() / 1_000_000.0,
+                    repository.isFailed() ? "failed: " + repository.getError() : "ok"));
+            sourceFiles += repository.getSourceFiles();
+            changed += repository.getChangedFiles();
+            nanos += repository.getNanos();
+        }
+        return report.append(String.format(Locale.ROOT, "%n%d repositories, %d source files, %d changed in %.1f s (%.1f s summed over repositories)%n",
+                reports.size(), sourceFiles, changed, wallNanos / 1e9, nanos / 1e9)).toString();
+    }
+
+    @Value
+    public static class RepositoryReport {
+        Path repository;
+        int sourceFiles;
+        int changedFiles;
+        long nanos;
+
+        /**
+         * Why the repository could not be migrated, or null if it was.
+         */
+        @Nullable
+        String error;
+
+        public boolean isFailed() {
+            return error != null;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.starter.gradle.MigrationResultCache.Declarations;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+import org.openrewrite.starter.gradle.SetterResolutionCache;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+import org.openrewrite.starter.metrics.StageTimings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the same two passes as {@link StreamingProviderApiMigration}, but every pass is a pipeline of stages connected
+ * by bounded queues of batches, so reading, parsing, visiting and writing overlap:
+ * <ul>
+ *     <li>{@code read} reads the source files of a batch into memory,</li>
+ *     <li>{@code parse} parses a batch, every thread with its own parsers,</li>
+ *     <li>{@code scan} collects the plain properties of a batch in the first pass, {@code visit} migrates a batch
+ *     in the second pass,</li>
+ *     <li>{@code write} passes the changed source files of a batch to the consumer in the second pass.</li>
+ * </ul>
+ * Every stage runs on its own threads. Since a full queue blocks the previous stage, at most
+ * {@code queueCapacity} batches wait between two stages and peak heap stays bounded like in the streaming migration.
+ * Batches are processed concurrently, so changes are passed to the consumer in no particular order and the consumer
+ * must be thread safe when the write stage has more than one thread.
+ * <p>
+ * Like in the streaming migration, the second pass parses every batch together with the source files declaring the
+ * types its call sites depend on, collected by the first pass. With a {@link PersistentPropertyIndex} the read stage
+ * of the first pass serves unchanged source files from the index, and only passes the others on to be parsed.
+ */
+public class PipelinedProviderApiMigration {
+
+    public static final String READ = "read";
+    public static final String PARSE = "parse";
+    public static final String SCAN = "scan";
+    public static final String VISIT = "visit";
+    public static final String WRITE = "write";
+
+    private static final List<?> END = new ArrayList<>(0);
+
+    private final MigrateToProviderApiRecipe recipe;
+    private final List<Supplier<? extends Parser<?>>> parserFactories;
+    private final int batchSize;
+
+    @Nullable
+    private final Path relativeTo;
+
+    private int readThreads = 1;
+    private int parseThreads = Runtime.getRuntime().availableProcessors();
+    private int visitThreads = 1;
+    private int writeThreads = 1;
+    private int queueCapacity = 2;
+    private int batchesPerParser = StreamingProviderApiMigration.DEFAULT_BATCHES_PER_PARSER;
+
+    @Nullable
+    private PersistentPropertyIndex index;
+
+    private StageTimings stageTimings = new StageTimings();
+
+    /**
+     * @param parserFactories create the parsers for the source files, every source file is parsed by the first parser that accepts it
+     * @param batchSize       the maximum number of source files in a batch
+     * @param relativeTo      the directory source paths are relative to, usually the repository root
+     */
+    public PipelinedProviderApiMigration(MigrateToProviderApiRecipe recipe, List<? extends Supplier<? extends Parser<?>>> parserFactories,
+                                         int batchSize, @Nullable Path relativeTo) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, but was " + batchSize);
+        }
+        this.recipe = recipe;
+        this.parserFactories = new ArrayList<>(parserFactories);
+        this.batchSize = batchSize;
+        this.relativeTo = relativeTo;
+    }
+
+    public void setReadThreads(int readThreads) {
+        this.readThreads = positive("Read threads", readThreads);
+    }
+
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = positive("Parse threads", parseThreads);
+    }
+
+    public void setVisitThreads(int visitThreads) {
+        this.visitThreads = positive("Visit threads", visitThreads);
+    }
+
+    public void setWriteThreads(int writeThreads) {
+        this.writeThreads = positive("Write threads", writeThreads);
+    }
+
+    /**
+     * The number of batches that may wait between two stages.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = positive("Queue capacity", queueCapacity);
+    }
+
+    /**
+     * The number of batches a parse thread parses before it creates its parsers again,
+     * see {@link StreamingProviderApiMigration#StreamingProviderApiMigration(MigrateToProviderApiRecipe, List, int, int, Path)}.
+     */
+    public void setBatchesPerParser(int batchesPerParser) {
+        this.batchesPerParser = positive("Batches per parser", batchesPerParser);
+    }
+
+    /**
+     * Keep the declarations collected by the first pass in the index, and serve source files recorded in it with the
+     * same content from it instead of parsing them. The index is saved at the end of the first pass.
+     */
+    public void setIndex(@Nullable PersistentPropertyIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @return the stage timings of the last run, named {@code collect.<stage>} and {@code migrate.<stage>}.
+     */
+    public StageTimings getStageTimings() {
+        return stageTimings;
+    }
+
+    /**
+     * Migrates the source files and passes every changed source file to the consumer.
+     * Source files no parser accepts are ignored.
+     *
+     * @return the number of changed source files
+     */
+    public int run(List<Path> sourceFiles, ExecutionContext ctx, Consumer<SourceFileChange> onChange) {
+        // The Java parser otherwise adds the types of every parsed batch to its source set marker and never drops them
+        ctx.putMessage(StreamingProviderApiMigration.SKIP_SOURCE_SET_TYPE_GENERATION, true);
+        stageTimings = new StageTimings();
+
+        PlainPropertyRegistry registry = PlainPropertyRegistry.from(ctx);
+        CrossBatchDependencies dependencies = new CrossBatchDependencies(relativeTo);
+        MigrationMetrics metrics = MigrationMetrics.from(ctx);
+        // The hashes of the source files not found in the index, by source path, to index them once they are scanned
+        Map<Path, byte[]> contentHashes = new ConcurrentHashMap<>();
+        Pipeline collect = new Pipeline("collect");
+        BlockingQueue<List<Parser.Input>> collectInputs = collect.stage(READ, readThreads, collect.source(sourceFiles), () -> read((path, content) -> {
+            if (index == null) {
+                return true;
+            }
+            Path sourcePath = relativeTo == null ? path : relativeTo.relativize(path);
+            byte[] contentHash = PersistentPropertyIndex.contentHash(content);
+            Declarations declarations = index.lookup(sourcePath, contentHash);
+            if (declarations == null) {
+                metrics.increment(MigrationMetrics.Counter.INDEX_MISSES);
+                contentHashes.put(sourcePath, contentHash);
+                return true;
+            }
+            metrics.increment(MigrationMetrics.Counter.INDEX_HITS);
+            registry.registerAll(declarations.getPlainProperties());
+            dependencies.add(path, declarations);
+            // The property index only keeps the source files seen in a run
+            index.put(sourcePath, contentHash, declarations);
+            return false;
+        }));
+        BlockingQueue<List<SourceFile>> collectParsed = collect.stage(PARSE, parseThreads, collectInputs, () -> parser(null, ctx));
+        collect.sink(SCAN, visitThreads, collectParsed, () -> batch -> {
+            for (SourceFile sourceFile : batch) {
+                SourceFileVisits.visit(new CollectTaskPlainPropertiesVisitor(), sourceFile, ctx);
+                if (sourceFile instanceof JavaSourceFile) {
+                    Path path = relativeTo == null ? sourceFile.getSourcePath() : relativeTo.resolve(sourceFile.getSourcePath());
+                    Declarations declarations = Declarations.of((JavaSourceFile) sourceFile, registry);
+                    dependencies.add(path, declarations);
+                    byte[] contentHash = contentHashes.remove(sourceFile.getSourcePath());
+                    if (index != null && contentHash != null) {
+                        index.put(sourceFile.getSourcePath(), contentHash, declarations);
+                    }
+                }
+            }
+        });
+        collect.await();
+        if (index != null) {
+            index.save();
+        }
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_COLLECT);
+
+        Stack<Recipe> recipeStack = new Stack<>();
+        recipeStack.push(recipe);
+        AtomicInteger changed = new AtomicInteger();
+        Pipeline migrate = new Pipeline("migrate");
+        BlockingQueue<List<Parser.Input>> migrateInputs = migrate.stage(READ, readThreads, migrate.source(sourceFiles), () -> read((path, content) -> true));
+        BlockingQueue<List<SourceFile>> migrateParsed = migrate.stage(PARSE, parseThreads, migrateInputs, () -> parser(dependencies, ctx));
+        BlockingQueue<List<SourceFileChange>> changes = migrate.stage(VISIT, visitThreads, migrateParsed, () -> batch -> {
+            // Resolutions reference the types of their batch, and other visit threads migrate other batches at the
+            // same time, so every batch resolves into a cache of its own instead of the one of the context
+            SetterResolutionCache batchCache = new SetterResolutionCache(SetterResolutionCache.DEFAULT_MAX_SIZE);
+            List<SourceFileChange> batchChanges = new ArrayList<>();
+            for (SourceFile sourceFile : batch) {
+                SourceFileChange change = SourceFileChange.of(sourceFile,
+                        SourceFileVisits.visit(new MigrateToProviderApiVisitor(batchCache), sourceFile, ctx), recipeStack);
+                if (change != null) {
+                    batchChanges.add(change);
+                }
+            }
+            return batchChanges;
+        });
+        migrate.sink(WRITE, writeThreads, changes, () -> batch -> {
+            batch.forEach(onChange);
+            changed.addAndGet(batch.size());
+        });
+        migrate.await();
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_MIGRATE_AND_REWRITE_INVOCATIONS);
+        metrics.runFinished();
+        return changed.get();
+    }
+
+    /**
+     * @param dependencies the classes the batches are parsed with, if any
+     */
+    private Function<List<Parser.Input>, List<SourceFile>> parser(@Nullable CrossBatchDependencies dependencies, ExecutionContext ctx) {
+        BatchParser parser = new BatchParser(parserFactories, batchesPerParser, relativeTo);
+        return inputs -> parser.parse(inputs, dependencies == null ? Collections.emptyList() : dependencies.of(inputs), ctx);
+    }
+
+    /**
+     * @param toParse whether a read source file is passed on to be parsed, given its path and raw content
+     */
+    private Function<List<Path>, List<Parser.Input>> read(BiPredicate<Path, byte[]> toParse) {
+        return paths -> {
+            List<Parser.Input> inputs = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                byte[] content;
+                try {
+                    content = Files.readAllBytes(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read " + path, e);
+                }
+                if (toParse.test(path, content)) {
+                    inputs.add(new Parser.Input(path, () -> new ByteArrayInputStream(content)));
+                }
+            }
+            return inputs;
+        };
+    }
+
+    private static int positive(String name, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be positive, but was " + value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> end() {
+        return (List<T>) END;
+    }
+
+    /**
+     * The stages of one pass, each with its own threads. The first failing stage stops all of them.
+     */
+    private class Pipeline {
+        private final String name;
+        private final ExecutorService executor;
+        private final ExecutorCompletionService<Void> completion;
+        private int tasks;
+
+        private Pipeline(String name) {
+            this.name = name;
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "provider-api-" + name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.completion = new ExecutorCompletionService<>(executor);
+        }
+
+        private BlockingQueue<List<Path>> source(List<Path> sourceFiles) {
+            BlockingQueue<List<Path>> batches = new LinkedBlockingQueue<>();
+            for (int from = 0; from < sourceFiles.size(); from += batchSize) {
+                batches.add(sourceFiles.subList(from, Math.min(from + batchSize, sourceFiles.size())));
+            }
+            batches.add(end());
+            return batches;
+        }
+
+        private <I, O> BlockingQueue<List<O>> stage(String stage, int threads, BlockingQueue<List<I>> in,
+                                                    Supplier<Function<List<I>, List<O>>> workers) {
+            BlockingQueue<List<O>> out = new ArrayBlockingQueue<>(queueCapacity);
+            run(stage, threads, in, out, workers);
+            return out;
+        }
+
+        private <I> void sink(String stage, int threads, BlockingQueue<List<I>> in, Supplier<Consumer<List<I>>> workers) {
+            run(stage, threads, in, null, () -> {
+                Consumer<List<I>> worker = workers.get();
+                return batch -> {
+                    worker.accept(batch);
+                    return Collections.emptyList();
+                };
+            });
+        }
+
+        private <I, O> void run(String stage, int threads, BlockingQueue<List<I>> in, @Nullable BlockingQueue<List<O>> out,
+                                Supplier<Function<List<I>, List<O>>> workers) {
+            String timer = name + "." + stage;
+            stageTimings.addStage(timer, threads);
+            AtomicInteger running = new AtomicInteger(threads);
+            for (int i = 0; i < threads; i++) {
+                tasks++;
+                completion.submit(() -> {
+                    Function<List<I>, List<O>> worker = workers.get();
+                    for (List<I> batch = in.take(); batch != END; batch = in.take()) {
+                        long start = System.nanoTime();
+                        List<O> result = worker.apply(batch);
+                        stageTimings.record(timer, System.nanoTime() - start, batch.size());
+                        if (out != null) {
+                            out.put(result);
+                        }
+                    }
+                    // Leave the end of the input for the other threads of this stage
+                    in.put(end());
+                    if (running.decrementAndGet() == 0 && out != null) {
+                        out.put(end());
+                    }
+                    return null;
+                });
+            }
+        }
+
+        private void await() {
+            try {
+                for (int i = 0; i < tasks; i++) {
+                    completion.take().get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("The " + name + " pipeline failed", cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while running the " + name + " pipeline", e);
+            } finally {
+                // Stops the stages still blocked on a queue after a failure
+                executor.shutdownNow();
+            }
+        }
+    }
+}
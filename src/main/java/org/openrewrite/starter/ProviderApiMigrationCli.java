@@ -0,0 +1,305 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+import org.openrewrite.starter.metrics.InMemoryMigrationMetrics;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link MigrateToProviderApiRecipe} on a project directory without a build tool, using the
+ * {@link PipelinedProviderApiMigration}. Prints a unified diff of the changes, or writes the changed files in place.
+ * Stage timings are printed to standard error. With {@code --estimate} it only prints a {@link org.openrewrite.starter.gradle.MigrationEstimate}.
+ * Exits with status 1 when any source file could not be parsed or migrated, after migrating the others.
+ */
+public class ProviderApiMigrationCli {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: ProviderApiMigrationCli [options] <project dir>",
+            "  --classpath <paths>       classpath to parse the source files with, e.g. the Gradle API and the compiled classes",
+            "  --in-place                write the changed files instead of printing a diff",
+            "  --diff <file>             write the diff to a file instead of standard output",
+            "  --index-file <file>       skip parsing files unchanged since the last run",
+            "  --batch-size <n>          source files per batch (default 100)",
+            "  --read-threads <n>        threads reading source files (default 1)",
+            "  --parse-threads <n>       threads parsing batches (default: available processors)",
+            "  --visit-threads <n>       threads scanning and migrating batches (default 1)",
+            "  --write-threads <n>       threads writing changes (default 1)",
+            "  --queue-capacity <n>      batches waiting between two stages (default 2)",
+            "  --metrics                 print the migration metrics to standard error",
+            "  --daemon <port file>      let the daemon of the port file migrate the project, requires --in-place",
+            "  --estimate                print how many classes, properties and call sites would change instead of migrating");
+
+    private ProviderApiMigrationCli() {
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+    }
+
+    static int run(String[] args) {
+        List<Path> classpath = Collections.emptyList();
+        boolean inPlace = false;
+        Path diffFile = null;
+        Path indexFile = null;
+        int batchSize = 100;
+        boolean metrics = false;
+        Path daemonPortFile = null;
+        boolean estimate = false;
+        Path projectDir = null;
+        List<Consumer<PipelinedProviderApiMigration>> settings = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--classpath":
+                    classpath = ProviderApiMigrationWorker.splitClasspath(value(args, ++i));
+                    break;
+                case "--in-place":
+                    inPlace = true;
+                    break;
+                case "--diff":
+                    diffFile = Paths.get(value(args, ++i));
+                    break;
+                case "--index-file":
+                    indexFile = Paths.get(value(args, ++i));
+                    break;
+                case "--batch-size":
+                    batchSize = number(args, ++i);
+                    break;
+                case "--read-threads":
+                    int readThreads = number(args, ++i);
+                    settings.add(migration -> migration.setReadThreads(readThreads));
+                    break;
+                case "--parse-threads":
+                    int parseThreads = number(args, ++i);
+                    settings.add(migration -> migration.setParseThreads(parseThreads));
+                    break;
+                case "--visit-threads":
+                    int visitThreads = number(args, ++i);
+                    settings.add(migration -> migration.setVisitThreads(visitThreads));
+                    break;
+                case "--write-threads":
+                    int writeThreads = number(args, ++i);
+                    settings.add(migration -> migration.setWriteThreads(writeThreads));
+                    break;
+                case "--queue-capacity":
+                    int queueCapacity = number(args, ++i);
+                    settings.add(migration -> migration.setQueueCapacity(queueCapacity));
+                    break;
+                case "--metrics":
+                    metrics = true;
+                    break;
+                case "--daemon":
+                    daemonPortFile = Paths.get(value(args, ++i));
+                    break;
+                case "--estimate":
+                    estimate = true;
+                    break;
+                default:
+                    if (args[i].startsWith("--") || projectDir != null) {
+                        throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                    }
+                    projectDir = Paths.get(args[i]).toAbsolutePath().normalize();
+            }
+        }
+        if (projectDir == null) {
+            throw new IllegalArgumentException("Missing project directory");
+        }
+        if (inPlace && diffFile != null) {
+            throw new IllegalArgumentException("--in-place and --diff are mutually exclusive");
+        }
+        if (estimate && (inPlace || diffFile != null || daemonPortFile != null)) {
+            throw new IllegalArgumentException("--estimate can't be combined with --in-place, --diff or --daemon");
+        }
+        if (daemonPortFile != null) {
+            if (!inPlace) {
+                throw new IllegalArgumentException("--daemon requires --in-place");
+            }
+            Path root = projectDir;
+            ProviderApiMigrationDaemon.Response response;
+            try {
+                response = ProviderApiMigrationDaemon.migrate(ProviderApiMigrationDaemon.Endpoint.read(daemonPortFile), projectDir,
+                        classpath, batchSize, true, change -> write(root.resolve(change.getSourcePath()), change.getAfter()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not reach the daemon of " + daemonPortFile, e);
+            }
+            System.err.println(response.getChangedFiles() + " source files changed");
+            return exitStatus(response.getFailures());
+        }
+
+        List<Supplier<? extends Parser<?>>> parserFactories = new ClasspathParsers(classpath).getParserFactories();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutionContext ctx = new InMemoryExecutionContext(t -> {
+            failures.incrementAndGet();
+            t.printStackTrace();
+        });
+        PersistentPropertyIndex index = indexFile == null ? null : PersistentPropertyIndex.load(indexFile);
+        if (estimate) {
+            StreamingProviderApiMigration migration = new StreamingProviderApiMigration(
+                    new MigrateToProviderApiRecipe(), parserFactories, batchSize, projectDir);
+            migration.setIndex(index);
+            System.out.print(migration.estimate(sourceFiles(projectDir), ctx).toMarkdown());
+            return exitStatus(failures.get());
+        }
+        PipelinedProviderApiMigration migration = new PipelinedProviderApiMigration(
+                new MigrateToProviderApiRecipe(), parserFactories, batchSize, projectDir);
+        migration.setIndex(index);
+        settings.forEach(setting -> setting.accept(migration));
+
+        if (metrics) {
+            MigrationMetrics.install(ctx, new InMemoryMigrationMetrics(System.err::print));
+        }
+        try (Writer diff = inPlace ? null : diffWriter(diffFile)) {
+            Path root = projectDir;
+            int changed = migration.run(sourceFiles(projectDir), ctx, change -> {
+                if (diff == null) {
+                    write(root.resolve(change.getSourcePath()), change.getAfter());
+                } else if (change.getResult() != null) {
+                    synchronized (diff) {
+                        try {
+                            diff.write(change.getResult().diff());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            });
+            System.err.print(migration.getStageTimings().summary());
+            System.err.println(changed + " source files changed");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return exitStatus(failures.get());
+    }
+
+    private static int exitStatus(int failures) {
+        if (failures > 0) {
+            System.err.println(failures + " errors while parsing or migrating source files, see above");
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the Java and Groovy source files and the Gradle build scripts of the project, without hidden directories
+     * and the {@code build} directories of the project and its subprojects.
+     */
+    static List<Path> sourceFiles(Path projectDir) {
+        List<Path> sourceFiles = new ArrayList<>();
+        try {
+            Files.walkFileTree(projectDir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                    return !dir.equals(projectDir) && (name.startsWith(".") || isBuildOutput(dir))
+                            ? FileVisitResult.SKIP_SUBTREE
+                            : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String name = file.getFileName().toString();
+                    if (attrs.isRegularFile() && (name.endsWith(".java") || name.endsWith(".groovy") || name.endsWith(".gradle"))) {
+                        sourceFiles.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                /**
+                 * A package named {@code build} is not build output, only the {@code build} directory of the project
+                 * and those next to the build script of a subproject are.
+                 */
+                private boolean isBuildOutput(Path dir) {
+                    if (!"build".equals(dir.getFileName().toString())) {
+                        return false;
+                    }
+                    Path parent = dir.getParent();
+                    return parent.equals(projectDir) ||
+                            Files.isRegularFile(parent.resolve("build.gradle")) ||
+                            Files.isRegularFile(parent.resolve("build.gradle.kts"));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list the source files of " + projectDir, e);
+        }
+        // Files of the same directory end up in the same batch
+        Collections.sort(sourceFiles);
+        return sourceFiles;
+    }
+
+    private static Writer diffWriter(@Nullable Path diffFile) throws IOException {
+        return diffFile == null
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+                    @Override
+                    public void close() {
+                        // Standard output stays open for the summary
+                        flush();
+                    }
+                }
+                : Files.newBufferedWriter(diffFile, StandardCharsets.UTF_8);
+    }
+
+    static void write(Path file, String source) {
+        try {
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + file, e);
+        }
+    }
+
+    static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    static int number(String[] args, int i) {
+        try {
+            return Integer.parseInt(value(args, i));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number for " + args[i - 1] + ": " + args[i]);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import lombok.Value;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.starter.gradle.ContentAddressedMemo;
+import org.openrewrite.starter.gradle.MigrationResultCache;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+import org.openrewrite.starter.gradle.SetterResolutionCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Long-lived process that migrates projects on request, so JVM startup, JIT warm-up and loading the parser classpath
+ * are paid once instead of on every run. Between requests it keeps
+ * <ul>
+ *     <li>the {@link WarmParsers} of every project and classpath, reset before every batch. Projects don't share
+ *     parsers, the compilers keep the classes they compiled,</li>
+ *     <li>a {@link PersistentPropertyIndex} per project and classpath in the cache directory, so unchanged source
+ *     files are not parsed in the first pass again,</li>
+ *     <li>a {@link MigrationResultCache} per project and classpath, also saved to the cache directory after every
+ *     request,</li>
+ *     <li>a {@link ContentAddressedMemo} per classpath, shared by all projects.</li>
+ * </ul>
+ * The index and the caches are only used by requests that reuse results. The {@link PlainPropertyRegistry} and the
+ * {@link SetterResolutionCache} are not kept: the registry would keep properties removed from the project since,
+ * and the resolutions hold the types of the batch they were resolved in, so the migration drops them after every
+ * batch anyway.
+ * Requests are accepted on a loopback socket and served one at a time. Every request has to carry the random token the
+ * daemon writes to its port file, which only the owner can read, so other users of the machine can neither migrate
+ * nor stop it. The daemon exits when no request arrives
+ * within the idle timeout, and drops the parsers and caches when the heap still in use after the last garbage
+ * collection exceeds the given fraction of the maximum heap, or when a request fails.
+ */
+public class ProviderApiMigrationDaemon {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = TimeUnit.MINUTES.toSeconds(30);
+    public static final double DEFAULT_MAX_HEAP_FRACTION = 0.7;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private static final int PROTOCOL_MAGIC = 0x50524344;
+    private static final int TOKEN_BYTES = 32;
+    private static final int HEADER_TIMEOUT_MILLIS = 10_000;
+    private static final String MIGRATE = "migrate";
+    private static final String STOP = "stop";
+    private static final byte OK = 0;
+    private static final byte ERROR = 1;
+
+    private final ServerSocket serverSocket;
+    private final long idleTimeoutMillis;
+    private final double maxHeapFraction;
+    private final Path cacheDir;
+    private final String token;
+
+    private final Map<List<Path>, ClasspathParsers> classpaths = new HashMap<>();
+
+    /**
+     * By project key, which differs by project and classpath.
+     */
+    private final Map<String, WarmParsers> parsers = new HashMap<>();
+
+    /**
+     * By cache file, which differs by project and classpath.
+     */
+    private final Map<Path, MigrationResultCache> resultCaches = new HashMap<>();
+
+    /**
+     * By version, like the result caches. Declarations depend on the classpath, but the memo finds them by content.
+     */
+    private final Map<String, ContentAddressedMemo> memos = new HashMap<>();
+    private int evictions;
+
+    /**
+     * @param port 0 to pick a free port, see {@link #getPort()}
+     */
+    public ProviderApiMigrationDaemon(int port, long idleTimeoutSeconds, double maxHeapFraction, Path cacheDir) throws IOException {
+        if (idleTimeoutSeconds < 1 || maxHeapFraction <= 0 || maxHeapFraction > 1) {
+            throw new IllegalArgumentException("Invalid daemon settings: idleTimeoutSeconds=" + idleTimeoutSeconds +
+                    ", maxHeapFraction=" + maxHeapFraction);
+        }
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.maxHeapFraction = maxHeapFraction;
+        this.cacheDir = cacheDir;
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        this.token = hex(random, random.length);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 0;
+        Path portFile = null;
+        long idleTimeoutSeconds = DEFAULT_IDLE_TIMEOUT_SECONDS;
+        double maxHeapFraction = DEFAULT_MAX_HEAP_FRACTION;
+        Path cacheDir = Paths.get(System.getProperty("user.home"), ".rewrite", "provider-api-daemon");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--port-file":
+                    portFile = Paths.get(args[i + 1]);
+                    break;
+                case "--idle-timeout":
+                    idleTimeoutSeconds = Long.parseLong(args[i + 1]);
+                    break;
+                case "--max-heap-fraction":
+                    maxHeapFraction = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--cache-dir":
+                    cacheDir = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+        }
+        ProviderApiMigrationDaemon daemon = new ProviderApiMigrationDaemon(port, idleTimeoutSeconds, maxHeapFraction, cacheDir);
+        // Without the token in the port file no client could send a request
+        daemon.writePortFile(portFile == null ? cacheDir.resolve("daemon.port") : portFile);
+        System.err.println("Provider API migration daemon listening on port " + daemon.getPort());
+        daemon.serve();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the port and the token clients connect with.
+     */
+    public Endpoint getEndpoint() {
+        return new Endpoint(getPort(), token);
+    }
+
+    /**
+     * Writes the port and the token to the file, readable and writable by its owner only where the file system
+     * supports POSIX permissions. Clients read it with {@link Endpoint#read(Path)}.
+     */
+    public void writePortFile(Path portFile) throws IOException {
+        Path dir = portFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        // Clients poll for the port file, it must never be seen half written
+        Path tmp = FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+                ? Files.createTempFile(dir, portFile.getFileName().toString(), ".tmp",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(dir, portFile.getFileName().toString(), ".tmp");
+        Files.write(tmp, (getPort() + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, portFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Serves requests until a stop request or the idle timeout.
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = serverSocket) {
+            server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, idleTimeoutMillis));
+            while (true) {
+                try (Socket socket = server.accept()) {
+                    if (!handle(socket)) {
+                        break;
+                    }
+                } catch (SocketTimeoutException e) {
+                    System.err.println("No request for " + TimeUnit.MILLISECONDS.toSeconds(idleTimeoutMillis) + "s, stopping");
+                    break;
+                } catch (IOException | UncheckedIOException e) {
+                    // A client that went away doesn't stop the daemon
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private boolean handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        Path projectDir;
+        List<Path> classpath;
+        int batchSize;
+        boolean reuseResults;
+        // A client that connects without sending a request doesn't block the daemon
+        socket.setSoTimeout(HEADER_TIMEOUT_MILLIS);
+        try {
+            if (in.readInt() != PROTOCOL_MAGIC) {
+                return true;
+            }
+            if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+                System.err.println("Rejected a request with a wrong token");
+                return true;
+            }
+            String command = in.readUTF();
+            if (STOP.equals(command)) {
+                out.writeByte(OK);
+                out.flush();
+                return false;
+            }
+            projectDir = Paths.get(ProviderApiMigrationWorker.readString(in));
+            classpath = ProviderApiMigrationWorker.splitClasspath(ProviderApiMigrationWorker.readString(in));
+            batchSize = in.readInt();
+            reuseResults = in.readBoolean();
+        } catch (SocketTimeoutException e) {
+            System.err.println("Dropped a connection without a request");
+            return true;
+        }
+        socket.setSoTimeout(0);
+        long start = System.nanoTime();
+        WarmParsers warm = parsers.get(projectKey(projectDir, classpath));
+        boolean cold = warm == null || !warm.isWarm();
+        // Source files that can't be parsed or migrated don't fail the request, the client is told how many there were
+        AtomicInteger failures = new AtomicInteger();
+        ExecutionContext ctx = new InMemoryExecutionContext(t -> {
+            failures.incrementAndGet();
+            t.printStackTrace();
+        });
+        try {
+            int changed = migrate(projectDir, classpath, batchSize, reuseResults, ctx, change -> {
+                try {
+                    out.writeBoolean(true);
+                    ProviderApiMigrationWorker.writeString(out, change.getSourcePath().toString());
+                    ProviderApiMigrationWorker.writeString(out, change.getAfter());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeBoolean(false);
+            out.flush();
+            System.err.printf(Locale.ROOT, "Migrated %s: %d files changed, %d errors in %.1f ms (%s parsers)%n",
+                    projectDir, changed, failures.get(), (System.nanoTime() - start) / 1_000_000.0, cold ? "cold" : "warm");
+        } catch (Throwable t) {
+            // A failed request, like one that ran out of memory, may leave the parsers and caches half updated, so
+            // they are dropped before the error is reported, and the daemon goes on serving the next request
+            evict("after " + t);
+            t.printStackTrace();
+            // Changes already sent are followed by the error, the client discards them
+            out.writeBoolean(false);
+            out.writeByte(ERROR);
+            ProviderApiMigrationWorker.writeString(out, String.valueOf(t));
+            out.flush();
+            return true;
+        } finally {
+            evictIfLowOnMemory();
+        }
+        out.writeByte(OK);
+        out.writeInt(failures.get());
+        out.flush();
+        return true;
+    }
+
+    private int migrate(Path projectDir, List<Path> classpath, int batchSize, boolean reuseResults, ExecutionContext ctx,
+                        Consumer<SourceFileChange> onChange) {
+        ClasspathParsers classpathParsers = classpaths.computeIfAbsent(classpath, ClasspathParsers::new);
+        String projectKey = projectKey(projectDir, classpath);
+        WarmParsers warm = parsers.computeIfAbsent(projectKey, key -> new WarmParsers(classpathParsers));
+        MigrateToProviderApiRecipe recipe = new MigrateToProviderApiRecipe();
+        StreamingProviderApiMigration migration = new StreamingProviderApiMigration(recipe,
+                warm.getParserFactories(), batchSize, projectDir);
+        MigrationResultCache resultCache = null;
+        if (reuseResults) {
+            // Changes to the classpath are not detected by the cache, so it is part of the version
+            String version = MigrationResultCache.recipeVersion(recipe) + "|" + classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+            resultCache = resultCaches.computeIfAbsent(cacheFile(projectDir, version), file -> MigrationResultCache.load(file, version));
+            migration.setResultCache(resultCache);
+            migration.setMemo(memos.computeIfAbsent(version, v -> new ContentAddressedMemo()));
+            // The index is keyed by content hash, it is only a question of whether results may be reused
+            migration.setIndex(PersistentPropertyIndex.load(cacheDir.resolve("index").resolve(projectKey + ".idx")));
+        }
+        int changed = migration.run(ProviderApiMigrationCli.sourceFiles(projectDir), ctx, onChange);
+        if (resultCache != null) {
+            resultCache.save();
+        }
+        return changed;
+    }
+
+    /**
+     * Identifies the parsers and the property index of a project migrated with a classpath. A project migrated with
+     * another classpath has its own, as the classpath decides which types are attributed.
+     */
+    private static String projectKey(Path projectDir, List<Path> classpath) {
+        String key = projectDir.toAbsolutePath().normalize() + "\n" +
+                classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+        return hex(MigrationResultCache.contentHash(key.getBytes(StandardCharsets.UTF_8)), 8);
+    }
+
+    /**
+     * A project migrated with another classpath has its own cache, so requests alternating between classpaths
+     * never see results of the other one.
+     */
+    private Path cacheFile(Path projectDir, String version) {
+        byte[] hash = MigrationResultCache.contentHash((projectDir.toAbsolutePath().normalize() + "\n" + version).getBytes(StandardCharsets.UTF_8));
+        return cacheDir.resolve(hex(hash, 8) + ".cache");
+    }
+
+    private static String hex(byte[] bytes, int length) {
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            hex.append(String.format(Locale.ROOT, "%02x", bytes[i]));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The parsers keep the symbols of every class they compiled and the caches grow with every project, so all of
+     * them are dropped once the heap in use after garbage collection gets close to the maximum heap.
+     */
+    private void evictIfLowOnMemory() {
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        long liveHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (afterGc != null) {
+                liveHeap += afterGc.getUsed();
+            }
+        }
+        if (liveHeap > maxHeap * maxHeapFraction) {
+            evict(String.format(Locale.ROOT, "with %.1f of %.1f MB heap in use", liveHeap / (1024.0 * 1024.0), maxHeap / (1024.0 * 1024.0)));
+        }
+    }
+
+    private void evict(String reason) {
+        classpaths.clear();
+        parsers.clear();
+        resultCaches.clear();
+        memos.clear();
+        evictions++;
+        System.err.printf(Locale.ROOT, "Dropped parsers and caches %s (eviction %d)%n", reason, evictions);
+    }
+
+    /**
+     * Asks the daemon to migrate the project and passes every changed source file to the consumer.
+     *
+     * @param reuseResults whether the daemon may reuse results of previous requests for unchanged source files
+     * @return the number of changed source files and of errors while parsing or migrating source files
+     */
+    public static Response migrate(Endpoint daemon, Path projectDir, List<Path> classpath, int batchSize, boolean reuseResults,
+                              Consumer<SourceFileChange> onChange) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(PROTOCOL_MAGIC);
+            out.writeUTF(daemon.getToken());
+            out.writeUTF(MIGRATE);
+            Path root = projectDir.toAbsolutePath().normalize();
+            ProviderApiMigrationWorker.writeString(out, root.toString());
+            ProviderApiMigrationWorker.writeString(out, classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+            out.writeInt(batchSize);
+            out.writeBoolean(reuseResults);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            List<SourceFileChange> changes = new ArrayList<>();
+            while (in.readBoolean()) {
+                String sourcePath = ProviderApiMigrationWorker.readString(in);
+                String after = ProviderApiMigrationWorker.readString(in);
+                String before = new String(Files.readAllBytes(root.resolve(sourcePath)), StandardCharsets.UTF_8);
+                changes.add(new SourceFileChange(Paths.get(sourcePath), before, after, null));
+            }
+            if (in.readByte() != OK) {
+                throw new IllegalStateException("The daemon failed to migrate " + root + ": " + ProviderApiMigrationWorker.readString(in));
+            }
+            int failures = in.readInt();
+            changes.forEach(onChange);
+            return new Response(changes.size(), failures);
+        }
+    }
+
+    /**
+     * Asks the daemon to stop after the request it is serving.
+     */
+    public static void stop(Endpoint daemon) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(PROTOCOL_MAGIC);
+            out.writeUTF(daemon.getToken());
+            out.writeUTF(STOP);
+            out.flush();
+            socket.getInputStream().read();
+        }
+    }
+
+    /**
+     * The outcome of a migration request.
+     */
+    @Value
+    public static class Response {
+        int changedFiles;
+
+        /**
+         * Errors while parsing or migrating source files, which the daemon skipped.
+         */
+        int failures;
+    }
+
+    /**
+     * The port of a daemon and the token its requests have to carry.
+     */
+    @Value
+    public static class Endpoint {
+        int port;
+        String token;
+
+        /**
+         * Reads the endpoint from the port file the daemon wrote.
+         */
+        public static Endpoint read(Path portFile) throws IOException {
+            List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+            if (lines.size() < 2) {
+                throw new IOException("Not a daemon port file: " + portFile);
+            }
+            try {
+                return new Endpoint(Integer.parseInt(lines.get(0).trim()), lines.get(1).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Not a daemon port file: " + portFile, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Entry point of the worker processes of a {@link ShardedProviderApiMigration}. A worker runs one phase on one shard:
+ * <ul>
+ *     <li>{@code collect <workDir> <shard>} collects the plain properties of the shard into {@code shard-<n>.idx}
+ *     and the declared classes into {@code shard-<n>.deps},</li>
+ *     <li>{@code migrate <workDir> <shard>} registers the plain properties of the merged {@code properties.idx},
+ *     migrates the shard with the classes of the merged {@code dependencies.deps} and writes the changed files to
+ *     {@code shard-<n>.patch}.</li>
+ * </ul>
+ * The shard's source files are listed in {@code shard-<n>.sources}, the parser classpath, batch size and source root
+ * in {@code job.properties}.
+ */
+public class ProviderApiMigrationWorker {
+
+    static final String JOB_FILE = "job.properties";
+    static final String MERGED_INDEX_FILE = "properties.idx";
+    static final String MERGED_DEPENDENCIES_FILE = "dependencies.deps";
+    static final String PARSER_CLASSPATH = "parserClasspath";
+    static final String BATCH_SIZE = "batchSize";
+    static final String RELATIVE_TO = "relativeTo";
+
+    private static final int PATCH_MAGIC = 0x50524350;
+
+    private ProviderApiMigrationWorker() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !("collect".equals(args[0]) || "migrate".equals(args[0]))) {
+            System.err.println("Usage: ProviderApiMigrationWorker collect|migrate <workDir> <shard>");
+            System.exit(2);
+        }
+        try {
+            int failures = run(args[0], Paths.get(args[1]), Integer.parseInt(args[2]));
+            if (failures > 0) {
+                System.err.println(failures + " errors while parsing or migrating source files, see above");
+                System.exit(1);
+            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the number of errors while parsing or migrating source files
+     */
+    static int run(String phase, Path workDir, int shard) throws IOException {
+        Properties job = new Properties();
+        try (Reader reader = Files.newBufferedReader(workDir.resolve(JOB_FILE), StandardCharsets.UTF_8)) {
+            job.load(reader);
+        }
+        List<Path> parserClasspath = splitClasspath(job.getProperty(PARSER_CLASSPATH, ""));
+        String relativeTo = job.getProperty(RELATIVE_TO);
+        List<Path> sourceFiles = Files.readAllLines(sourcesFile(workDir, shard), StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.isEmpty())
+                .map(Paths::get)
+                .collect(Collectors.toList());
+        // A source file that can't be parsed doesn't stop the shard, but the worker fails once the phase is done
+        AtomicInteger failures = new AtomicInteger();
+        ExecutionContext ctx = new InMemoryExecutionContext(t -> {
+            failures.incrementAndGet();
+            t.printStackTrace();
+        });
+
+        if ("collect".equals(phase)) {
+            StreamingProviderApiMigration migration = migration(new MigrateToProviderApiRecipe(), parserClasspath, job, relativeTo);
+            migration.setIndex(PersistentPropertyIndex.load(indexFile(workDir, shard)));
+            migration.collect(sourceFiles, ctx);
+            migration.getDependencies().save(dependenciesFile(workDir, shard));
+            return failures.get();
+        }
+        PlainPropertyRegistry.from(ctx).registerAll(PersistentPropertyIndex.load(workDir.resolve(MERGED_INDEX_FILE)).getPlainProperties());
+        StreamingProviderApiMigration migration = migration(new MigrateToProviderApiRecipe(), parserClasspath, job, relativeTo);
+        migration.getDependencies().addAll(CrossBatchDependencies.load(workDir.resolve(MERGED_DEPENDENCIES_FILE),
+                relativeTo == null ? null : Paths.get(relativeTo)));
+        try (DataOutputStream patch = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(patchFile(workDir, shard))))) {
+            patch.writeInt(PATCH_MAGIC);
+            migration.migrate(sourceFiles, ctx, change -> {
+                try {
+                    patch.writeBoolean(true);
+                    writeString(patch, change.getSourcePath().toString());
+                    writeString(patch, change.getAfter());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            patch.writeBoolean(false);
+        }
+        return failures.get();
+    }
+
+    private static StreamingProviderApiMigration migration(MigrateToProviderApiRecipe recipe, List<Path> parserClasspath,
+                                                           Properties job, @Nullable String relativeTo) {
+        // The same parsers as a run in a single process, so Gradle build scripts are migrated as well
+        return new StreamingProviderApiMigration(recipe, new ClasspathParsers(parserClasspath).getParserFactories(),
+                Integer.parseInt(job.getProperty(BATCH_SIZE)),
+                relativeTo == null ? null : Paths.get(relativeTo));
+    }
+
+    /**
+     * Reads the changed files a worker wrote, by source path and migrated source.
+     */
+    static void readPatch(Path patchFile, BiConsumer<String, String> onChange) throws IOException {
+        try (DataInputStream patch = new DataInputStream(new BufferedInputStream(Files.newInputStream(patchFile)))) {
+            if (patch.readInt() != PATCH_MAGIC) {
+                throw new IOException("Not a patch file: " + patchFile);
+            }
+            while (patch.readBoolean()) {
+                onChange.accept(readString(patch), readString(patch));
+            }
+        }
+    }
+
+    static List<Path> splitClasspath(String classpath) {
+        List<Path> paths = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                paths.add(Paths.get(entry));
+            }
+        }
+        return paths;
+    }
+
+    static Path sourcesFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".sources");
+    }
+
+    static Path indexFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".idx");
+    }
+
+    static Path dependenciesFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".deps");
+    }
+
+    static Path patchFile(Path workDir, int shard) {
+        return workDir.resolve("shard-" + shard + ".patch");
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the streaming migration in several local worker processes, each on a shard of the source files, for code bases
+ * too large for the heap or the cores of a single JVM. All coordination goes through files in a work directory:
+ * <ol>
+ *     <li>every worker collects the plain properties and the declared classes of its shard into a partial index,</li>
+ *     <li>the coordinator merges the partial indexes into one index,</li>
+ *     <li>every worker registers the plain properties of the merged index, migrates its shard and writes a patch
+ *     with the changed files. Its batches are parsed with the source files declaring the types they depend on,
+ *     whichever shard they belong to,</li>
+ *     <li>the coordinator merges the patches and passes the changed files to the consumer.</li>
+ * </ol>
+ * Shards are contiguous ranges of the source files, so files listed next to each other, usually of the same directory,
+ * are parsed by the same worker. A worker that could not parse or migrate one of its source files finishes its phase
+ * and then fails, which fails the run.
+ */
+public class ShardedProviderApiMigration {
+
+    private final int shards;
+    private final List<Path> parserClasspath;
+    private final int batchSize;
+
+    @Nullable
+    private final Path relativeTo;
+
+    private final Path workDir;
+    private List<String> jvmArguments = Collections.emptyList();
+
+    /**
+     * @param shards          the number of worker processes
+     * @param parserClasspath the classpath the workers parse the source files with
+     * @param batchSize       the maximum number of source files a worker parses at once
+     * @param relativeTo      the directory source paths are relative to, usually the repository root
+     * @param workDir         the directory for the shard lists, indexes and patches, which are kept after the run
+     */
+    public ShardedProviderApiMigration(int shards, List<Path> parserClasspath, int batchSize, @Nullable Path relativeTo, Path workDir) {
+        if (shards < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Shards and batch size must be positive, but were " + shards + " and " + batchSize);
+        }
+        this.shards = shards;
+        this.parserClasspath = new ArrayList<>(parserClasspath);
+        this.batchSize = batchSize;
+        this.relativeTo = relativeTo;
+        this.workDir = workDir;
+    }
+
+    /**
+     * JVM arguments of the worker processes, e.g. the maximum heap size.
+     */
+    public void setJvmArguments(List<String> jvmArguments) {
+        this.jvmArguments = new ArrayList<>(jvmArguments);
+    }
+
+    /**
+     * Migrates the source files and passes every changed source file to the consumer once all workers finished.
+     *
+     * @return the number of changed source files
+     */
+    public int run(List<Path> sourceFiles, Consumer<SourceFileChange> onChange) {
+        try {
+            Files.createDirectories(workDir);
+            writeJob();
+            int shardCount = Math.max(1, Math.min(shards, sourceFiles.size()));
+            int shardSize = (sourceFiles.size() + shardCount - 1) / shardCount;
+            for (int shard = 0; shard < shardCount; shard++) {
+                List<Path> shardFiles = sourceFiles.subList(Math.min(shard * shardSize, sourceFiles.size()),
+                        Math.min((shard + 1) * shardSize, sourceFiles.size()));
+                Files.write(ProviderApiMigrationWorker.sourcesFile(workDir, shard),
+                        shardFiles.stream().map(Path::toString).collect(Collectors.toList()), StandardCharsets.UTF_8);
+                Files.deleteIfExists(ProviderApiMigrationWorker.indexFile(workDir, shard));
+                Files.deleteIfExists(ProviderApiMigrationWorker.dependenciesFile(workDir, shard));
+            }
+
+            Path mergedIndexFile = workDir.resolve(ProviderApiMigrationWorker.MERGED_INDEX_FILE);
+            Files.deleteIfExists(mergedIndexFile);
+
+            runWorkers("collect", shardCount);
+            PersistentPropertyIndex merged = PersistentPropertyIndex.load(mergedIndexFile);
+            CrossBatchDependencies dependencies = new CrossBatchDependencies(relativeTo);
+            for (int shard = 0; shard < shardCount; shard++) {
+                merged.putAll(PersistentPropertyIndex.load(ProviderApiMigrationWorker.indexFile(workDir, shard)));
+                dependencies.addAll(CrossBatchDependencies.load(ProviderApiMigrationWorker.dependenciesFile(workDir, shard), relativeTo));
+            }
+            merged.save();
+            dependencies.save(workDir.resolve(ProviderApiMigrationWorker.MERGED_DEPENDENCIES_FILE));
+
+            runWorkers("migrate", shardCount);
+            return mergePatches(shardCount, onChange);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJob() throws IOException {
+        Properties job = new Properties();
+        job.setProperty(ProviderApiMigrationWorker.PARSER_CLASSPATH,
+                parserClasspath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        job.setProperty(ProviderApiMigrationWorker.BATCH_SIZE, String.valueOf(batchSize));
+        if (relativeTo != null) {
+            job.setProperty(ProviderApiMigrationWorker.RELATIVE_TO, relativeTo.toString());
+        }
+        try (Writer writer = Files.newBufferedWriter(workDir.resolve(ProviderApiMigrationWorker.JOB_FILE), StandardCharsets.UTF_8)) {
+            job.store(writer, null);
+        }
+    }
+
+    private void runWorkers(String phase, int shardCount) throws IOException {
+        List<Process> workers = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmArguments);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(ProviderApiMigrationWorker.class.getName());
+            command.add(phase);
+            command.add(workDir.toAbsolutePath().toString());
+            command.add(String.valueOf(shard));
+            workers.add(new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(logFile(phase, shard).toFile())
+                    .start());
+        }
+        List<Integer> failed = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < shardCount; shard++) {
+                if (workers.get(shard).waitFor() != 0) {
+                    failed.add(shard);
+                }
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Process::destroy);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + phase + " workers", e);
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("The " + phase + " workers of shards " + failed + " failed, see " +
+                    failed.stream().map(shard -> logFile(phase, shard).toString()).collect(Collectors.joining(", ")));
+        }
+    }
+
+    private int mergePatches(int shardCount, Consumer<SourceFileChange> onChange) throws IOException {
+        Set<String> changedPaths = new HashSet<>();
+        int changed = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            List<SourceFileChange> changes = new ArrayList<>();
+            ProviderApiMigrationWorker.readPatch(ProviderApiMigrationWorker.patchFile(workDir, shard), (sourcePath, after) -> {
+                if (!changedPaths.add(sourcePath)) {
+                    throw new IllegalStateException("Source file " + sourcePath + " was changed by more than one shard");
+                }
+                changes.add(new SourceFileChange(Paths.get(sourcePath), read(sourcePath), after, null));
+            });
+            changes.forEach(onChange);
+            changed += changes.size();
+        }
+        return changed;
+    }
+
+    private String read(String sourcePath) {
+        Path path = relativeTo == null ? Paths.get(sourcePath) : relativeTo.resolve(sourcePath);
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + path, e);
+        }
+    }
+
+    private Path logFile(String phase, int shard) {
+        return workDir.resolve("shard-" + shard + "-" + phase + ".log");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import lombok.Value;
+import org.openrewrite.Recipe;
+import org.openrewrite.Result;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.marker.Generated;
+import org.openrewrite.starter.gradle.MigrationResultCache;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Stack;
+
+/**
+ * A source file changed by {@link StreamingProviderApiMigration}.
+ */
+@Value
+public class SourceFileChange {
+    Path sourcePath;
+    String before;
+    String after;
+
+    /**
+     * The result with the LSTs of the source file, or null when the change was reused from the
+     * {@link MigrationResultCache} without parsing the source file.
+     */
+    @Nullable
+    Result result;
+
+    /**
+     * Applies the same rules as the recipe scheduler: generated source files are never reported and
+     * a source file that is a different instance but prints the same was not changed.
+     *
+     * @return the change, or null if the source file did not change
+     */
+    public static @Nullable SourceFileChange of(SourceFile before, SourceFile after, Stack<Recipe> recipeStack) {
+        if (after == before || before.getMarkers().findFirst(Generated.class).isPresent()) {
+            return null;
+        }
+        String beforeSource = before.printAll();
+        String afterSource = after.printAll();
+        if (before.getSourcePath().equals(after.getSourcePath()) && beforeSource.equals(afterSource)) {
+            return null;
+        }
+        return new SourceFileChange(before.getSourcePath(), beforeSource, afterSource,
+                new Result(before, after, Collections.singleton(recipeStack)));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.ListUtils;
+import org.openrewrite.internal.lang.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Helpers for recipes that visit the whole source set themselves instead of relying on the scheduler.
+ */
+class SourceFileVisits {
+
+    private SourceFileVisits() {
+    }
+
+    /**
+     * Visits a single source file the way the recipe scheduler does: files the visitor does not accept are skipped
+     * and errors are reported to the {@link ExecutionContext} instead of failing the whole run.
+     */
+    static SourceFile visit(TreeVisitor<?, ExecutionContext> visitor, SourceFile sourceFile, ExecutionContext ctx) {
+        if (!visitor.isAcceptable(sourceFile, ctx)) {
+            return sourceFile;
+        }
+        try {
+            return (SourceFile) visitor.visit(sourceFile, ctx);
+        } catch (Throwable t) {
+            ctx.getOnError().accept(t);
+            return sourceFile;
+        }
+    }
+
+    /**
+     * Maps every source file, on a dedicated fork-join pool when parallelism is greater than one.
+     * The result keeps the order of the input and is the same list instance when nothing changed,
+     * so serial and parallel mode produce identical results.
+     */
+    static List<SourceFile> map(List<SourceFile> before, @Nullable Integer parallelism, UnaryOperator<SourceFile> visit) {
+        if (parallelism == null || parallelism <= 1 || before.size() <= 1) {
+            return ListUtils.map(before, visit);
+        }
+        SourceFile[] after = new SourceFile[before.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, after.length)
+                    .parallel()
+                    .forEach(i -> after[i] = visit.apply(before.get(i)))
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while visiting source files", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to visit source files", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return ListUtils.map(before, (i, sourceFile) -> after[i]);
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Parser;
+import org.openrewrite.Recipe;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.starter.gradle.ContentAddressedMemo;
+import org.openrewrite.starter.gradle.MigrationResultCache;
+import org.openrewrite.starter.gradle.MigrationResultCache.CachedResult;
+import org.openrewrite.starter.gradle.MigrationResultCache.Declarations;
+import org.openrewrite.starter.gradle.MigrationEstimate;
+import org.openrewrite.starter.gradle.PersistentPropertyIndex;
+import org.openrewrite.starter.gradle.PlainPropertyRegistry;
+import org.openrewrite.starter.gradle.SetterResolutionCache;
+import org.openrewrite.starter.metrics.MigrationEvents;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link MigrateToProviderApiRecipe} over source files on disk without holding all of them in memory at once.
+ * <p>
+ * Source files are parsed twice, in batches of at most {@code batchSize} files. The first pass only collects plain
+ * properties into the registry and the declared classes with their supertypes, which keeps class and property names
+ * but no LSTs. The second pass parses every batch again, rewrites it and passes the changed files to the result
+ * consumer before the next batch is parsed. Peak heap therefore depends on the batch size and not on the size of the
+ * repository, as long as the consumer does not keep the results. An instance runs one migration at a time.
+ * <p>
+ * Call sites are only rewritten when the type they are called on is attributed. The second pass parses every batch
+ * together with the source files declaring the task classes it names, their supertypes and the types of their
+ * Property getters, and drops these source files after parsing. Call sites on these types are rewritten like in a
+ * run of the recipe with all source files in memory, wherever the types are declared.
+ * <p>
+ * With a {@link PersistentPropertyIndex} source files whose content did not change since the index was saved are not
+ * parsed in the first pass. With a {@link MigrationResultCache} they are not parsed in the first pass either,
+ * and not in the second pass either as long as the Property getters of the types they use are unchanged, unless
+ * another batch depends on them. A {@link ContentAddressedMemo} does the same for copies of a file at other paths,
+ * within a run and across runs.
+ */
+public class StreamingProviderApiMigration {
+
+    public static final int DEFAULT_BATCHES_PER_PARSER = 20;
+
+    static final String SKIP_SOURCE_SET_TYPE_GENERATION = "org.openrewrite.java.skipSourceSetTypeGeneration";
+
+    private final MigrateToProviderApiRecipe recipe;
+    private final BatchParser batchParser;
+    private final int batchSize;
+
+    @Nullable
+    private final Path relativeTo;
+
+    private final CrossBatchDependencies dependencies;
+
+    @Nullable
+    private MigrationResultCache resultCache;
+
+    @Nullable
+    private ContentAddressedMemo memo;
+
+    @Nullable
+    private PersistentPropertyIndex index;
+
+    /**
+     * Property getters of the classes declared in the collected source files, only needed to validate reused results.
+     */
+    private final Map<String, List<String>> propertyGetters = new HashMap<>();
+
+    public StreamingProviderApiMigration(MigrateToProviderApiRecipe recipe, List<? extends Supplier<? extends Parser<?>>> parserFactories,
+                                         int batchSize, @Nullable Path relativeTo) {
+        this(recipe, parserFactories, batchSize, DEFAULT_BATCHES_PER_PARSER, relativeTo);
+    }
+
+    /**
+     * @param parserFactories  create the parsers for the source files, every source file is parsed by the first parser that accepts it
+     * @param batchSize        the maximum number of source files parsed at once
+     * @param batchesPerParser the number of batches parsed before the parsers are created again. Parsers are reset between
+     *                         batches, but the compiler keeps the symbols of every class it compiled until the parser is dropped.
+     *                         Creating a parser loads its classpath again, so parsers are not created for every batch
+     * @param relativeTo       the directory source paths are relative to, usually the repository root
+     */
+    public StreamingProviderApiMigration(MigrateToProviderApiRecipe recipe, List<? extends Supplier<? extends Parser<?>>> parserFactories,
+                                         int batchSize, int batchesPerParser, @Nullable Path relativeTo) {
+        if (batchSize < 1 || batchesPerParser < 1) {
+            throw new IllegalArgumentException("Batch size and batches per parser must be positive, but were " + batchSize + " and " + batchesPerParser);
+        }
+        this.recipe = recipe;
+        this.batchParser = new BatchParser(parserFactories, batchesPerParser, relativeTo);
+        this.batchSize = batchSize;
+        this.relativeTo = relativeTo;
+        this.dependencies = new CrossBatchDependencies(relativeTo);
+    }
+
+    /**
+     * Reuse the results of previous runs for source files that did not change. The cache is not saved by the run.
+     */
+    public void setResultCache(@Nullable MigrationResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Parse and migrate copies of the same file once. Share the memo between the migrations of several repositories
+     * to reuse results across them.
+     */
+    public void setMemo(@Nullable ContentAddressedMemo memo) {
+        this.memo = memo;
+    }
+
+    /**
+     * Keep the declarations collected by the first pass in the index, and serve source files recorded in it with the
+     * same content from it instead of parsing them. The index is saved at the end of the first pass.
+     */
+    public void setIndex(@Nullable PersistentPropertyIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * The classes collected by the first pass, which the second pass parses the batches with. A second pass that runs
+     * without the first, like a worker of a {@link ShardedProviderApiMigration}, adds the classes collected elsewhere.
+     */
+    CrossBatchDependencies getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Migrates the source files and passes every changed source file to the consumer, batch by batch.
+     * Source files no parser accepts are ignored.
+     *
+     * @return the number of changed source files
+     */
+    public int run(List<Path> sourceFiles, ExecutionContext ctx, Consumer<SourceFileChange> onChange) {
+        collect(sourceFiles, ctx);
+        return migrate(sourceFiles, ctx, onChange);
+    }
+
+    /**
+     * Runs the first pass only, which collects the plain properties of the source files into the registry of the
+     * context and, when an index is set, into the property index. The declared classes are kept for the second pass.
+     */
+    public void collect(List<Path> sourceFiles, ExecutionContext ctx) {
+        // The Java parser otherwise adds the types of every parsed batch to its source set marker and never drops them
+        ctx.putMessage(SKIP_SOURCE_SET_TYPE_GENERATION, true);
+        MigrationMetrics metrics = MigrationMetrics.from(ctx);
+        PlainPropertyRegistry registry = PlainPropertyRegistry.from(ctx);
+        propertyGetters.clear();
+        dependencies.clear();
+
+        for (int from = 0; from < sourceFiles.size(); from += batchSize) {
+            List<Path> batch = sourceFiles.subList(from, Math.min(from + batchSize, sourceFiles.size()));
+            Map<String, byte[]> contentHashes = new HashMap<>();
+            List<Path> toParse = batch;
+            if (index != null || isReusingResults()) {
+                toParse = new ArrayList<>();
+                for (Path path : batch) {
+                    String sourcePath = sourcePath(path);
+                    byte[] contentHash = MigrationResultCache.contentHash(read(path));
+                    Declarations declarations = findDeclarations(sourcePath, contentHash, metrics);
+                    if (declarations == null) {
+                        contentHashes.put(sourcePath, contentHash);
+                        toParse.add(path);
+                        continue;
+                    }
+                    registry.registerAll(declarations.getPlainProperties());
+                    propertyGetters.putAll(declarations.getPropertyGetters());
+                    dependencies.add(path, declarations);
+                    if (index != null) {
+                        // The property index only keeps the source files seen in a run
+                        index.put(Paths.get(sourcePath), contentHash, declarations);
+                    }
+                }
+            }
+            Map<String, Path> paths = new HashMap<>();
+            for (Path path : toParse) {
+                paths.put(sourcePath(path), path);
+            }
+            List<SourceFile> parsed = parse(toParse, false, ctx);
+            // The scan never modifies source files, only the collected plain properties outlive the batch
+            SourceFileVisits.map(parsed, recipe.getParallelism(), sourceFile ->
+                    SourceFileVisits.visit(new CollectTaskPlainPropertiesVisitor(), sourceFile, ctx));
+            for (SourceFile sourceFile : parsed) {
+                String sourcePath = sourceFile.getSourcePath().toString();
+                if (sourceFile instanceof JavaSourceFile) {
+                    Declarations declarations = Declarations.of((JavaSourceFile) sourceFile, registry);
+                    byte[] contentHash = contentHashes.get(sourcePath);
+                    if (contentHash != null) {
+                        putDeclarations(sourcePath, contentHash, declarations);
+                    }
+                    propertyGetters.putAll(declarations.getPropertyGetters());
+                    dependencies.add(paths.get(sourcePath), declarations);
+                }
+            }
+        }
+        if (index != null) {
+            index.save();
+        }
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_COLLECT);
+    }
+
+    /**
+     * Runs the second pass only, which migrates the source files with the plain properties already in the registry
+     * of the context, collected by {@link #collect(List, ExecutionContext)} or registered from an index.
+     *
+     * @return the number of changed source files
+     */
+    public int migrate(List<Path> sourceFiles, ExecutionContext ctx, Consumer<SourceFileChange> onChange) {
+        ctx.putMessage(SKIP_SOURCE_SET_TYPE_GENERATION, true);
+        MigrationMetrics metrics = MigrationMetrics.from(ctx);
+        PlainPropertyRegistry registry = PlainPropertyRegistry.from(ctx);
+        Stack<Recipe> recipeStack = new Stack<>();
+        recipeStack.push(recipe);
+        Function<List<String>, byte[]> dependencyHasher = dependencies ->
+                MigrationResultCache.dependencyHash(dependencies, registry, propertyGetters);
+        int changed = 0;
+        for (int from = 0; from < sourceFiles.size(); from += batchSize) {
+            List<Path> batch = sourceFiles.subList(from, Math.min(from + batchSize, sourceFiles.size()));
+            Map<String, byte[]> contentHashes = new HashMap<>();
+            List<Path> toParse = batch;
+            if (isReusingResults()) {
+                toParse = new ArrayList<>();
+                for (Path path : batch) {
+                    String sourcePath = sourcePath(path);
+                    byte[] content = read(path);
+                    byte[] contentHash = MigrationResultCache.contentHash(content);
+                    CachedResult cached = findResult(sourcePath, contentHash, dependencyHasher, metrics);
+                    if (cached == null) {
+                        contentHashes.put(sourcePath, contentHash);
+                        toParse.add(path);
+                    } else if (cached.isChanged()) {
+                        onChange.accept(new SourceFileChange(Paths.get(sourcePath), new String(content, StandardCharsets.UTF_8), cached.getAfter(), null));
+                        changed++;
+                    }
+                }
+            }
+            List<SourceFile> before = parse(toParse, true, ctx);
+            List<SourceFile> after = SourceFileVisits.map(before, recipe.getParallelism(), sourceFile ->
+                    SourceFileVisits.visit(new MigrateToProviderApiVisitor(), sourceFile, ctx));
+            for (int i = 0; i < before.size(); i++) {
+                SourceFile beforeFile = before.get(i);
+                SourceFileChange change = SourceFileChange.of(beforeFile, after.get(i), recipeStack);
+                String afterSource = null;
+                if (change != null) {
+                    afterSource = change.getAfter();
+                    onChange.accept(change);
+                    changed++;
+                }
+                byte[] contentHash = contentHashes.get(beforeFile.getSourcePath().toString());
+                if (beforeFile instanceof JavaSourceFile && contentHash != null) {
+                    List<String> dependencies = MigrationResultCache.dependencies((JavaSourceFile) beforeFile);
+                    putResult(beforeFile.getSourcePath().toString(), contentHash, dependencies, dependencyHasher.apply(dependencies), afterSource);
+                }
+            }
+            // Cached resolutions reference this batch's types, the next batch is attributed from scratch
+            SetterResolutionCache.from(ctx).clear();
+        }
+        MigrationEvents.phaseFinished(ctx, MigrationEvents.PHASE_MIGRATE_AND_REWRITE_INVOCATIONS);
+        metrics.runFinished();
+        batchParser.close();
+        propertyGetters.clear();
+        dependencies.clear();
+        return changed;
+    }
+
+    /**
+     * Collects the plain properties like {@link #run(List, ExecutionContext, Consumer)}, then counts what the second
+     * pass would change into the {@link MigrationEstimate} of the context without rewriting any source file.
+     * Every source file is parsed in the second pass, results of earlier runs are only reused for the collection.
+     *
+     * @return the estimate of the context
+     */
+    public MigrationEstimate estimate(List<Path> sourceFiles, ExecutionContext ctx) {
+        collect(sourceFiles, ctx);
+        MigrationEstimate estimate = MigrationEstimate.from(ctx);
+        for (int from = 0; from < sourceFiles.size(); from += batchSize) {
+            List<SourceFile> parsed = parse(sourceFiles.subList(from, Math.min(from + batchSize, sourceFiles.size())), true, ctx);
+            estimate.addScannedSourceFiles(parsed.size());
+            SourceFileVisits.map(parsed, recipe.getParallelism(), sourceFile ->
+                    SourceFileVisits.visit(new EstimateProviderApiMigrationVisitor(), sourceFile, ctx));
+            SetterResolutionCache.from(ctx).clear();
+        }
+        batchParser.close();
+        propertyGetters.clear();
+        dependencies.clear();
+        return estimate;
+    }
+
+    /**
+     * @param withDependencies whether to parse the source files together with the source files declaring the types
+     *                         they depend on, which the first pass does not need
+     */
+    private List<SourceFile> parse(List<Path> paths, boolean withDependencies, ExecutionContext ctx) {
+        List<Parser.Input> inputs = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            inputs.add(BatchParser.input(path));
+        }
+        return batchParser.parse(inputs, withDependencies ? dependencies.of(inputs) : Collections.emptyList(), ctx);
+    }
+
+    private boolean isReusingResults() {
+        return resultCache != null || memo != null;
+    }
+
+    /**
+     * Looks up the declarations of an unchanged source file in the result cache, then of an identical file in the memo,
+     * then of the unchanged source file in the property index.
+     */
+    private @Nullable Declarations findDeclarations(String sourcePath, byte[] contentHash, MigrationMetrics metrics) {
+        if (resultCache != null) {
+            Declarations declarations = resultCache.getDeclarations(sourcePath, contentHash);
+            metrics.increment(declarations == null ? MigrationMetrics.Counter.DECLARATION_CACHE_MISSES : MigrationMetrics.Counter.DECLARATION_CACHE_HITS);
+            if (declarations != null) {
+                return declarations;
+            }
+        }
+        if (memo != null) {
+            Declarations declarations = memo.getDeclarations(contentHash);
+            metrics.increment(declarations == null ? MigrationMetrics.Counter.DEDUP_DECLARATION_MISSES : MigrationMetrics.Counter.DEDUP_DECLARATION_HITS);
+            if (declarations != null) {
+                if (resultCache != null) {
+                    // Next run finds them by path
+                    resultCache.putDeclarations(sourcePath, contentHash, declarations);
+                }
+                return declarations;
+            }
+        }
+        if (index != null) {
+            Declarations declarations = index.lookup(Paths.get(sourcePath), contentHash);
+            metrics.increment(declarations == null ? MigrationMetrics.Counter.INDEX_MISSES : MigrationMetrics.Counter.INDEX_HITS);
+            return declarations;
+        }
+        return null;
+    }
+
+    private void putDeclarations(String sourcePath, byte[] contentHash, Declarations declarations) {
+        if (resultCache != null) {
+            resultCache.putDeclarations(sourcePath, contentHash, declarations);
+        }
+        if (memo != null) {
+            memo.putDeclarations(contentHash, declarations);
+        }
+        if (index != null) {
+            index.put(Paths.get(sourcePath), contentHash, declarations);
+        }
+    }
+
+    /**
+     * Looks up the result of an unchanged source file in the result cache, then of an identical file in the memo.
+     */
+    private @Nullable CachedResult findResult(String sourcePath, byte[] contentHash, Function<List<String>, byte[]> dependencyHasher,
+                                              MigrationMetrics metrics) {
+        if (resultCache != null) {
+            CachedResult cached = resultCache.getResult(sourcePath, contentHash, dependencyHasher);
+            metrics.increment(cached == null ? MigrationMetrics.Counter.RESULT_CACHE_MISSES : MigrationMetrics.Counter.RESULT_CACHE_HITS);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        if (memo != null) {
+            CachedResult cached = memo.getResult(contentHash, dependencyHasher);
+            metrics.increment(cached == null ? MigrationMetrics.Counter.DEDUP_RESULT_MISSES : MigrationMetrics.Counter.DEDUP_RESULT_HITS);
+            if (cached != null && resultCache != null) {
+                resultCache.putResult(sourcePath, contentHash, cached.getDependencies(), cached.getDependencyHash(), cached.getAfter());
+            }
+            return cached;
+        }
+        return null;
+    }
+
+    private void putResult(String sourcePath, byte[] contentHash, List<String> dependencies, byte[] dependencyHash, @Nullable String after) {
+        if (resultCache != null) {
+            resultCache.putResult(sourcePath, contentHash, dependencies, dependencyHash, after);
+        }
+        if (memo != null) {
+            memo.putResult(contentHash, dependencies, dependencyHash, after);
+        }
+    }
+
+    private String sourcePath(Path path) {
+        // The same path the parsers put on the source file
+        return (relativeTo == null ? path : relativeTo.relativize(path)).toString();
+    }
+
+    private static byte[] read(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + path, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import org.openrewrite.Parser;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaParser;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The Java and Groovy parsers of one project and classpath, created on first use and returned by every later call of
+ * their factories, so the compilers keep the classpath symbols they completed from one migration of the project to
+ * the next. {@link BatchParser} resets them before every batch, and their owner drops them when the heap gets low:
+ * the compilers also keep the symbols of every class they compiled, which is also why the parsers are not shared with
+ * other projects that may declare classes of the same name. Not thread safe.
+ */
+class WarmParsers {
+
+    private final ClasspathParsers classpathParsers;
+
+    @Nullable
+    private JavaParser javaParser;
+
+    @Nullable
+    private GroovyAndGradleScriptParser groovyParser;
+
+    WarmParsers(ClasspathParsers classpathParsers) {
+        this.classpathParsers = classpathParsers;
+    }
+
+    /**
+     * @return factories that return the same parsers on every call.
+     */
+    List<Supplier<? extends Parser<?>>> getParserFactories() {
+        return Arrays.asList(this::getJavaParser, this::getGroovyParser);
+    }
+
+    /**
+     * @return whether the parsers were created by an earlier migration.
+     */
+    boolean isWarm() {
+        return javaParser != null || groovyParser != null;
+    }
+
+    JavaParser getJavaParser() {
+        if (javaParser == null) {
+            javaParser = classpathParsers.newJavaParser();
+        }
+        return javaParser;
+    }
+
+    GroovyAndGradleScriptParser getGroovyParser() {
+        if (groovyParser == null) {
+            groovyParser = classpathParsers.newGroovyParser();
+        }
+        return groovyParser;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classification of a method name as a bean getter, boolean getter or setter. A name is an accessor only when the
+ * prefix is followed by an upper case character, so {@code settings()} or {@code isolate()} are not accessors while
+ * {@code getIsolated()} is the getter of {@code isolated}.
+ * <p>
+ * Names are classified in a single pass over their characters and the results are interned, so classifying a
+ * name that was seen before doesn't allocate.
+ */
+public final class AccessorName {
+
+    private static final int MAX_INTERNED = 16_384;
+
+    private static final Map<String, AccessorName> INTERNED = new ConcurrentHashMap<>();
+
+    public enum Kind {
+        GETTER,
+        BOOLEAN_GETTER,
+        SETTER,
+        NONE
+    }
+
+    private final Kind kind;
+    private final String methodName;
+    private final String propertyName;
+    private final String getterName;
+
+    private AccessorName(Kind kind, String methodName, String propertyName, String getterName) {
+        this.kind = kind;
+        this.methodName = methodName;
+        this.propertyName = propertyName;
+        this.getterName = getterName;
+    }
+
+    public static AccessorName of(String methodName) {
+        AccessorName accessor = INTERNED.get(methodName);
+        if (accessor == null) {
+            accessor = classify(methodName);
+            // Names come from the source set, the bound only protects against unusually large ones
+            if (INTERNED.size() < MAX_INTERNED) {
+                INTERNED.putIfAbsent(methodName, accessor);
+            }
+        }
+        return accessor;
+    }
+
+    private static AccessorName classify(String methodName) {
+        int length = methodName.length();
+        Kind kind = Kind.NONE;
+        int prefix = 0;
+        if (length > 3 && methodName.charAt(1) == 'e' && methodName.charAt(2) == 't' && Character.isUpperCase(methodName.charAt(3))) {
+            char first = methodName.charAt(0);
+            if (first == 'g') {
+                kind = Kind.GETTER;
+                prefix = 3;
+            } else if (first == 's') {
+                kind = Kind.SETTER;
+                prefix = 3;
+            }
+        } else if (length > 2 && methodName.charAt(0) == 'i' && methodName.charAt(1) == 's' && Character.isUpperCase(methodName.charAt(2))) {
+            kind = Kind.BOOLEAN_GETTER;
+            prefix = 2;
+        }
+        if (kind == Kind.NONE) {
+            return new AccessorName(kind, methodName, methodName, methodName);
+        }
+        char[] property = new char[length - prefix];
+        methodName.getChars(prefix, length, property, 0);
+        property[0] = Character.toLowerCase(property[0]);
+        String getterName = kind == Kind.SETTER ? "g" + methodName.substring(1) : methodName;
+        return new AccessorName(kind, methodName, new String(property), getterName);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return the name of the property, with the first character in lower case, or the method name itself
+     * when it is not an accessor.
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return the {@code get} getter matching a setter, or the method name itself for anything else.
+     */
+    public String getGetterName() {
+        return getterName;
+    }
+
+    public boolean isGetter() {
+        return kind == Kind.GETTER || kind == Kind.BOOLEAN_GETTER;
+    }
+
+    public boolean isSetter() {
+        return kind == Kind.SETTER;
+    }
+
+    public boolean isAccessor() {
+        return kind != Kind.NONE;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + methodName;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.MigrationResultCache.CachedResult;
+import org.openrewrite.starter.gradle.MigrationResultCache.Declarations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Declarations and migration results by file content, so copies of the same file are parsed and migrated once.
+ * Unlike the {@link MigrationResultCache}, which is keyed by source path, the memo is kept in memory and can be shared
+ * by the migrations of several repositories that vendor the same task classes.
+ * <p>
+ * Identical content declares the same classes and uses the same types, but these types may be declared differently
+ * in another repository. A result is therefore only reused when the declarations of the types it depends on hash the
+ * same as when it was recorded. Once {@code maxEntries} contents are recorded, new contents are no longer recorded,
+ * and once the recorded migrated sources take {@code maxBytes}, counted in UTF-8 bytes, results that would exceed it
+ * are no longer recorded either.
+ */
+public class ContentAddressedMemo {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final AtomicLong bytes = new AtomicLong();
+    private final Map<ByteBuffer, Declarations> declarations = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, List<CachedResult>> results = new ConcurrentHashMap<>();
+
+    private final AtomicLong declarationHits = new AtomicLong();
+    private final AtomicLong declarationMisses = new AtomicLong();
+    private final AtomicLong resultHits = new AtomicLong();
+    private final AtomicLong resultMisses = new AtomicLong();
+
+    public ContentAddressedMemo() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public ContentAddressedMemo(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Memo limits must be positive, but were " + maxEntries + " entries and " + maxBytes + " bytes");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the declarations of a file with the same content, or null if no such file was scanned.
+     */
+    public @Nullable Declarations getDeclarations(byte[] contentHash) {
+        Declarations found = declarations.get(ByteBuffer.wrap(contentHash));
+        (found == null ? declarationMisses : declarationHits).incrementAndGet();
+        return found;
+    }
+
+    public void putDeclarations(byte[] contentHash, Declarations declarations) {
+        if (this.declarations.size() < maxEntries) {
+            this.declarations.putIfAbsent(ByteBuffer.wrap(contentHash), declarations);
+        }
+    }
+
+    /**
+     * @param dependencyHasher hashes the current declarations of the types a result depends on
+     * @return the migration result of a file with the same content and the same dependency declarations,
+     * or null if the file has to be migrated.
+     */
+    public @Nullable CachedResult getResult(byte[] contentHash, Function<List<String>, byte[]> dependencyHasher) {
+        List<CachedResult> candidates = results.get(ByteBuffer.wrap(contentHash));
+        if (candidates != null) {
+            for (CachedResult candidate : candidates) {
+                if (Arrays.equals(candidate.getDependencyHash(), dependencyHasher.apply(candidate.getDependencies()))) {
+                    resultHits.incrementAndGet();
+                    return candidate;
+                }
+            }
+        }
+        resultMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param after the migrated source, or null if the migration did not change the file
+     */
+    public void putResult(byte[] contentHash, List<String> dependencies, byte[] dependencyHash, @Nullable String after) {
+        ByteBuffer key = ByteBuffer.wrap(contentHash);
+        if ((results.size() < maxEntries || results.containsKey(key)) && reserve(after == null ? 0 : MigrationResultCache.utf8Length(after))) {
+            results.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(new CachedResult(dependencies, dependencyHash, after));
+        }
+    }
+
+    /**
+     * @return whether the bytes fit into what is left of {@code maxBytes}, in which case they are taken from it.
+     */
+    private boolean reserve(long size) {
+        long used;
+        do {
+            used = bytes.get();
+            if (used + size > maxBytes) {
+                return false;
+            }
+        } while (!bytes.compareAndSet(used, used + size));
+        return true;
+    }
+
+    /**
+     * @return the UTF-8 bytes of the recorded migrated sources.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getDeclarationHits() {
+        return declarationHits.get();
+    }
+
+    public long getDeclarationMisses() {
+        return declarationMisses.get();
+    }
+
+    public long getResultHits() {
+        return resultHits.get();
+    }
+
+    public long getResultMisses() {
+        return resultMisses.get();
+    }
+
+    /**
+     * @return the share of files whose migration result was reused from an identical file.
+     */
+    public double getDedupRatio() {
+        long lookups = getResultHits() + getResultMisses();
+        return lookups == 0 ? 0.0 : (double) getResultHits() / lookups;
+    }
+}
@@ -2,14 +2,12 @@ package org.openrewrite.starter.gradle;
 
 import org.openrewrite.java.tree.JavaType;
 
-import java.util.regex.Pattern;
-
 public class GradleConstants {
 
-    public static final String PROPERTIES_MESSAGE_PREFIX = "plain-properties:";
     public static final String PROPERTY_FQ = "org.gradle.api.provider.Property";
     public static final JavaType PROPERTY_TYPE = JavaType.buildType(PROPERTY_FQ);
-    public static final Pattern PROPERTY_PATTERN = Pattern.compile(PROPERTY_FQ);
-    public static final Pattern INPUT_ANNOTATION_PATTERN = Pattern.compile("org.gradle.api.tasks.Input");
+    public static final TypeMatcher PROPERTY_MATCHER = TypeMatcher.of(PROPERTY_FQ);
+    public static final String INPUT_ANNOTATION_FQ = "org.gradle.api.tasks.Input";
+    public static final TypeMatcher INPUT_ANNOTATION_MATCHER = TypeMatcher.of(INPUT_ANNOTATION_FQ);
 
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.ExecutionContext;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How many declarations and call sites the migration would change, per source file and per class. The estimate is
+ * shared between visitors through the {@link ExecutionContext}. Visitors count the changes of a source file into their
+ * own {@link Counts} and add them once the file is done, so only source files and classes with changes are kept.
+ */
+public class MigrationEstimate {
+
+    private static final String ESTIMATE_MESSAGE = "migration-estimate";
+
+    public enum Change {
+        /**
+         * A plain {@code @Input} property declared by a class, counted for the declaring class only.
+         */
+        PROPERTY("Properties"),
+        FIELD("Fields"),
+        GETTER("Getters"),
+        /**
+         * A setter that is removed.
+         */
+        SETTER("Setters"),
+        /**
+         * A setter invocation that is rewritten to set the Property, counted for the class the setter is called on.
+         */
+        CALL_SITE("Call sites");
+
+        private final String header;
+
+        Change(String header) {
+            this.header = header;
+        }
+    }
+
+    private static final Change[] CHANGES = Change.values();
+
+    private final Map<String, Counts> sourceFiles = new ConcurrentSkipListMap<>();
+    private final Map<String, Counts> classes = new ConcurrentSkipListMap<>();
+    private final AtomicInteger scannedSourceFiles = new AtomicInteger();
+
+    public static MigrationEstimate from(ExecutionContext executionContext) {
+        MigrationEstimate estimate = executionContext.getMessage(ESTIMATE_MESSAGE);
+        if (estimate == null) {
+            synchronized (executionContext) {
+                estimate = executionContext.getMessage(ESTIMATE_MESSAGE);
+                if (estimate == null) {
+                    estimate = new MigrationEstimate();
+                    executionContext.putMessage(ESTIMATE_MESSAGE, estimate);
+                }
+            }
+        }
+        return estimate;
+    }
+
+    public void addScannedSourceFiles(int count) {
+        scannedSourceFiles.addAndGet(count);
+    }
+
+    public void addSourceFile(String sourcePath, Counts counts) {
+        add(sourceFiles, sourcePath, counts);
+    }
+
+    public void addClass(String classFq, Counts counts) {
+        add(classes, classFq, counts);
+    }
+
+    private static void add(Map<String, Counts> estimates, String key, Counts counts) {
+        if (!counts.isEmpty()) {
+            Counts total = estimates.computeIfAbsent(key, k -> new Counts());
+            synchronized (total) {
+                total.add(counts);
+            }
+        }
+    }
+
+    public int getScannedSourceFiles() {
+        return scannedSourceFiles.get();
+    }
+
+    /**
+     * @return the counts of every source file with changes, by source path.
+     */
+    public Map<String, Counts> getSourceFiles() {
+        return Collections.unmodifiableMap(sourceFiles);
+    }
+
+    /**
+     * @return the counts of every class with changes, by fully qualified name.
+     */
+    public Map<String, Counts> getClasses() {
+        return Collections.unmodifiableMap(classes);
+    }
+
+    public Counts getTotal() {
+        Counts total = new Counts();
+        for (Counts counts : sourceFiles.values()) {
+            total.add(counts);
+        }
+        return total;
+    }
+
+    /**
+     * @return markdown tables with the counts per source file and per class, followed by the totals.
+     */
+    public String toMarkdown() {
+        StringBuilder report = new StringBuilder();
+        table(report, "Source file", sourceFiles);
+        report.append('\n');
+        table(report, "Class", classes);
+        Counts total = getTotal();
+        return report.append(String.format(Locale.ROOT,
+                "%n%d of %d source files and %d classes change: %d properties, %d fields, %d getters, %d setters removed, %d call sites%n",
+                sourceFiles.size(), getScannedSourceFiles(), classes.size(), total.get(Change.PROPERTY), total.get(Change.FIELD),
+                total.get(Change.GETTER), total.get(Change.SETTER), total.get(Change.CALL_SITE))).toString();
+    }
+
+    private static void table(StringBuilder report, String header, Map<String, Counts> rows) {
+        report.append("| ").append(header).append(" |");
+        for (Change change : CHANGES) {
+            report.append(' ').append(change.header).append(" |");
+        }
+        report.append("\n|---|");
+        for (int i = 0; i < CHANGES.length; i++) {
+            report.append("---:|");
+        }
+        for (Map.Entry<String, Counts> row : rows.entrySet()) {
+            report.append("\n| ").append(row.getKey()).append(" |");
+            for (Change change : CHANGES) {
+                report.append(' ').append(row.getValue().get(change)).append(" |");
+            }
+        }
+        report.append('\n');
+    }
+
+    /**
+     * Number of changes by kind. Not thread safe, every visitor counts into its own instances.
+     */
+    public static class Counts {
+        private final int[] counts = new int[CHANGES.length];
+
+        public void increment(Change change) {
+            add(change, 1);
+        }
+
+        public void add(Change change, int count) {
+            counts[change.ordinal()] += count;
+        }
+
+        public void add(Counts other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+
+        public int get(Change change) {
+            return counts[change.ordinal()];
+        }
+
+        public boolean isEmpty() {
+            for (int count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,727 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import lombok.Value;
+import org.openrewrite.Recipe;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.Expression;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.Statement;
+import org.openrewrite.java.tree.TypeTree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.openrewrite.starter.gradle.GradleConstants.PROPERTY_MATCHER;
+
+/**
+ * On-disk cache of migration results for incremental runs, keyed by source path. An entry records
+ * <ul>
+ *     <li>the SHA-256 hash of the file content,</li>
+ *     <li>the declarations of the classes in the file: their plain properties, the methods returning a Property, their
+ *     supertypes and the types of their Properties. An unchanged file does not have to be parsed to rebuild the
+ *     property registry,</li>
+ *     <li>the migration result, either no change or the migrated source, together with the types the file uses and
+ *     a hash of their declarations at the time. The result is reused as long as the content is unchanged and
+ *     the current declarations of these types hash the same.</li>
+ * </ul>
+ * The whole cache is dropped when the recipe version changes. On {@link #save()} the least recently used entries
+ * are evicted until at most {@code maxEntries} entries with at most {@code maxBytes} of migrated source remain,
+ * counted in UTF-8 bytes.
+ * <p>
+ * The file is memory-mapped on load. Migrated sources stay in the mapping and are only decoded when their result is
+ * reused, so the heap holds the migrated sources of the current run but not those of the whole cache.
+ */
+public class MigrationResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final int MAGIC = 0x50524358;
+    private static final int VERSION = 2;
+
+    /**
+     * Bumped whenever the migration output changes for the same input, so results of older versions are not reused.
+     */
+    private static final int RESULT_VERSION = 2;
+
+    private static final byte NO_RESULT = 0;
+    private static final byte UNCHANGED = 1;
+    private static final byte CHANGED = 2;
+
+    private final Path file;
+    private final String recipeVersion;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long run;
+    private final Map<String, Entry> entries;
+
+    /**
+     * The loaded file, which the migrated sources of loaded entries are decoded from.
+     */
+    @Nullable
+    private final ByteBuffer mapped;
+
+    private final AtomicLong declarationHits = new AtomicLong();
+    private final AtomicLong declarationMisses = new AtomicLong();
+    private final AtomicLong resultHits = new AtomicLong();
+    private final AtomicLong resultMisses = new AtomicLong();
+
+    private MigrationResultCache(Path file, String recipeVersion, int maxEntries, long maxBytes, long run,
+                                 Map<String, Entry> entries, @Nullable ByteBuffer mapped) {
+        this.file = file;
+        this.recipeVersion = recipeVersion;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.run = run;
+        this.entries = entries;
+        this.mapped = mapped;
+    }
+
+    private static MigrationResultCache empty(Path file, String recipeVersion, int maxEntries, long maxBytes, long run) {
+        return new MigrationResultCache(file, recipeVersion, maxEntries, maxBytes, run, new ConcurrentHashMap<>(), null);
+    }
+
+    /**
+     * @return the version results of the recipe are cached under. It changes with the recipe and the version of
+     * this library, but not with the parser classpath, which is up to the caller to add.
+     */
+    public static String recipeVersion(Recipe recipe) {
+        String implementationVersion = MigrationResultCache.class.getPackage().getImplementationVersion();
+        return recipe.getName() + "@" + (implementationVersion == null ? "development" : implementationVersion) + "#" + RESULT_VERSION;
+    }
+
+    public static MigrationResultCache load(Path file, String recipeVersion) {
+        return load(file, recipeVersion, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    public static MigrationResultCache load(Path file, String recipeVersion, int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive, but were " + maxEntries + " entries and " + maxBytes + " bytes");
+        }
+        if (!Files.isRegularFile(file)) {
+            return empty(file, recipeVersion, maxEntries, maxBytes, 1);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed, save() replaces the file instead of writing into it
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.duplicate();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return empty(file, recipeVersion, maxEntries, maxBytes, 1);
+            }
+            String cachedRecipeVersion = readString(buffer);
+            long previousRun = buffer.getLong();
+            if (!cachedRecipeVersion.equals(recipeVersion)) {
+                return empty(file, recipeVersion, maxEntries, maxBytes, previousRun + 1);
+            }
+            int entryCount = readCount(buffer);
+            Map<String, Entry> entries = new ConcurrentHashMap<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                String sourcePath = readString(buffer);
+                byte[] contentHash = readBytes(buffer);
+                long lastUsed = buffer.getLong();
+                Declarations declarations = readDeclarations(buffer);
+                CachedResult result = null;
+                int afterOffset = -1;
+                int afterLength = 0;
+                byte state = buffer.get();
+                if (state != NO_RESULT) {
+                    byte[] dependencyHash = readBytes(buffer);
+                    List<String> dependencies = new ArrayList<>(readStrings(buffer));
+                    result = new CachedResult(dependencies, dependencyHash, null);
+                    if (state == CHANGED) {
+                        // Only decoded when the result is reused
+                        afterLength = readLength(buffer);
+                        afterOffset = buffer.position();
+                        buffer.position(afterOffset + afterLength);
+                    }
+                }
+                entries.put(sourcePath, new Entry(contentHash, declarations, result, afterOffset, afterLength, lastUsed));
+            }
+            return new MigrationResultCache(file, recipeVersion, maxEntries, maxBytes, previousRun + 1, entries, mapped);
+        } catch (IOException | RuntimeException e) {
+            // A truncated or unreadable cache is not fatal, every file is simply migrated again
+            return empty(file, recipeVersion, maxEntries, maxBytes, 1);
+        }
+    }
+
+    /**
+     * @return the declarations found in the source file when its content was last seen, or null if the file is new or changed.
+     */
+    public @Nullable Declarations getDeclarations(String sourcePath, byte[] contentHash) {
+        Entry entry = entries.get(sourcePath);
+        if (entry == null || !Arrays.equals(entry.contentHash, contentHash)) {
+            declarationMisses.incrementAndGet();
+            return null;
+        }
+        declarationHits.incrementAndGet();
+        entry.lastUsed = run;
+        return entry.declarations;
+    }
+
+    /**
+     * Records the declarations of a new or changed source file, dropping its previous result.
+     */
+    public void putDeclarations(String sourcePath, byte[] contentHash, Declarations declarations) {
+        entries.put(sourcePath, new Entry(contentHash, declarations, null, run));
+    }
+
+    /**
+     * @param dependencyHasher hashes the current declarations of the types a cached result depends on
+     * @return the result of the previous migration of the source file, or null if it has to be migrated again.
+     */
+    public @Nullable CachedResult getResult(String sourcePath, byte[] contentHash, Function<List<String>, byte[]> dependencyHasher) {
+        Entry entry = entries.get(sourcePath);
+        CachedResult result = entry == null ? null : entry.result;
+        if (result == null || !Arrays.equals(entry.contentHash, contentHash)
+                || !Arrays.equals(result.dependencyHash, dependencyHasher.apply(result.dependencies))) {
+            resultMisses.incrementAndGet();
+            return null;
+        }
+        if (entry.afterOffset >= 0) {
+            String after = decodeAfter(entry);
+            if (after == null) {
+                resultMisses.incrementAndGet();
+                return null;
+            }
+            // Not kept in the entry, save() copies the bytes from the mapping
+            result = new CachedResult(result.dependencies, result.dependencyHash, after);
+        }
+        resultHits.incrementAndGet();
+        entry.lastUsed = run;
+        return result;
+    }
+
+    /**
+     * @return the migrated source of a loaded entry, or null if it can't be decoded.
+     */
+    private @Nullable String decodeAfter(Entry entry) {
+        byte[] bytes = readAfter(entry);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private @Nullable byte[] readAfter(Entry entry) {
+        if (mapped == null) {
+            return null;
+        }
+        // A duplicate has its own position, so concurrent lookups don't interfere
+        ByteBuffer buffer = mapped.duplicate();
+        try {
+            buffer.position(entry.afterOffset);
+            byte[] bytes = new byte[entry.afterLength];
+            buffer.get(bytes);
+            return bytes;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param after the migrated source, or null if the migration did not change the source file
+     */
+    public void putResult(String sourcePath, byte[] contentHash, List<String> dependencies, byte[] dependencyHash, @Nullable String after) {
+        Entry entry = entries.get(sourcePath);
+        Declarations declarations = entry != null && Arrays.equals(entry.contentHash, contentHash) ? entry.declarations : Declarations.NONE;
+        entries.put(sourcePath, new Entry(contentHash, declarations, new CachedResult(dependencies, dependencyHash, after), run));
+    }
+
+    public long getDeclarationHits() {
+        return declarationHits.get();
+    }
+
+    public long getDeclarationMisses() {
+        return declarationMisses.get();
+    }
+
+    public long getResultHits() {
+        return resultHits.get();
+    }
+
+    public long getResultMisses() {
+        return resultMisses.get();
+    }
+
+    /**
+     * @return the share of source files whose migration result was reused in this run.
+     */
+    public double getResultHitRate() {
+        long lookups = getResultHits() + getResultMisses();
+        return lookups == 0 ? 0.0 : (double) getResultHits() / lookups;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void save() {
+        List<Map.Entry<String, Entry>> retained = new ArrayList<>(entries.entrySet());
+        // Most recently used first, ties broken by path so the file content is deterministic
+        retained.sort(Comparator.<Map.Entry<String, Entry>>comparingLong(e -> -e.getValue().lastUsed).thenComparing(Map.Entry::getKey));
+        long bytes = 0;
+        int kept = 0;
+        while (kept < retained.size() && kept < maxEntries) {
+            bytes += retained.get(kept).getValue().size();
+            if (bytes > maxBytes) {
+                break;
+            }
+            kept++;
+        }
+        Map<String, Entry> sorted = new TreeMap<>();
+        for (Map.Entry<String, Entry> entry : retained.subList(0, kept)) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, recipeVersion);
+                out.writeLong(run);
+                out.writeInt(sorted.size());
+                for (Map.Entry<String, Entry> e : sorted.entrySet()) {
+                    Entry entry = e.getValue();
+                    writeString(out, e.getKey());
+                    writeBytes(out, entry.contentHash);
+                    out.writeLong(entry.lastUsed);
+                    writeDeclarations(out, entry.declarations);
+                    CachedResult result = entry.result;
+                    if (result == null) {
+                        out.writeByte(NO_RESULT);
+                        continue;
+                    }
+                    byte[] after = entry.afterOffset >= 0 ? readAfter(entry)
+                            : result.after == null ? null : result.after.getBytes(StandardCharsets.UTF_8);
+                    if (entry.afterOffset >= 0 && after == null) {
+                        // The migrated source can't be read back, the result is migrated again in the next run
+                        out.writeByte(NO_RESULT);
+                        continue;
+                    }
+                    out.writeByte(after == null ? UNCHANGED : CHANGED);
+                    writeBytes(out, result.dependencyHash);
+                    writeStrings(out, result.dependencies);
+                    if (after != null) {
+                        writeBytes(out, after);
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write migration result cache " + file, e);
+        }
+    }
+
+    /**
+     * Hashes the declarations of the given types as they are known in the current run, types without
+     * plain properties or Property getters only contribute their name.
+     */
+    public static byte[] dependencyHash(Collection<String> dependencies, PlainPropertyRegistry registry,
+                                        Map<String, List<String>> propertyGetters) {
+        MessageDigest digest = sha256();
+        for (String dependency : new TreeSet<>(dependencies)) {
+            digest.update(dependency.getBytes(StandardCharsets.UTF_8));
+            for (String property : new TreeSet<>(registry.get(dependency).getProperties())) {
+                digest.update((byte) 0);
+                digest.update(property.getBytes(StandardCharsets.UTF_8));
+            }
+            for (String getter : propertyGetters.getOrDefault(dependency, Collections.emptyList())) {
+                digest.update((byte) 1);
+                digest.update(getter.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) '\n');
+        }
+        return digest.digest();
+    }
+
+    /**
+     * @return the types declared or used in the source file, and their supertypes, whose declarations may affect its
+     * migration. JDK types are left out, they are never declared in the migrated sources.
+     */
+    public static List<String> dependencies(JavaSourceFile cu) {
+        Set<String> dependencies = new TreeSet<>();
+        for (J.ClassDeclaration declared : Declarations.declaredClasses(cu).values()) {
+            addWithSupertypes(declared.getType(), dependencies);
+        }
+        for (JavaType type : cu.getTypesInUse().getTypesInUse()) {
+            if (type instanceof JavaType.FullyQualified) {
+                addWithSupertypes((JavaType.FullyQualified) type, dependencies);
+            }
+        }
+        return new ArrayList<>(dependencies);
+    }
+
+    private static void addWithSupertypes(@Nullable JavaType.FullyQualified type, Set<String> dependencies) {
+        if (type == null || type.getFullyQualifiedName().startsWith("java.") || !dependencies.add(type.getFullyQualifiedName())) {
+            return;
+        }
+        addWithSupertypes(type.getSupertype(), dependencies);
+        for (JavaType.FullyQualified anInterface : type.getInterfaces()) {
+            addWithSupertypes(anInterface, dependencies);
+        }
+    }
+
+    public static byte[] contentHash(byte[] content) {
+        return sha256().digest(content);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Declarations readDeclarations(ByteBuffer buffer) {
+        int classCount = readCount(buffer);
+        Map<String, Set<String>> plainProperties = new LinkedHashMap<>();
+        Map<String, List<String>> propertyGetters = new LinkedHashMap<>();
+        Map<String, List<String>> supertypes = new LinkedHashMap<>();
+        Map<String, List<String>> propertyTypes = new LinkedHashMap<>();
+        for (int i = 0; i < classCount; i++) {
+            String classFq = readString(buffer);
+            List<String> properties = readStrings(buffer);
+            if (!properties.isEmpty()) {
+                plainProperties.put(classFq, new LinkedHashSet<>(properties));
+            }
+            List<String> getters = readStrings(buffer);
+            if (!getters.isEmpty()) {
+                propertyGetters.put(classFq, getters);
+            }
+            supertypes.put(classFq, readStrings(buffer));
+            List<String> types = readStrings(buffer);
+            if (!types.isEmpty()) {
+                propertyTypes.put(classFq, types);
+            }
+        }
+        return new Declarations(plainProperties, propertyGetters, supertypes, propertyTypes);
+    }
+
+    static void writeDeclarations(DataOutputStream out, Declarations declarations) throws IOException {
+        Set<String> classes = new TreeSet<>(declarations.plainProperties.keySet());
+        classes.addAll(declarations.propertyGetters.keySet());
+        classes.addAll(declarations.supertypes.keySet());
+        out.writeInt(classes.size());
+        for (String classFq : classes) {
+            writeString(out, classFq);
+            writeStrings(out, declarations.plainProperties.getOrDefault(classFq, Collections.emptySet()));
+            writeStrings(out, declarations.propertyGetters.getOrDefault(classFq, Collections.emptyList()));
+            writeStrings(out, declarations.supertypes.getOrDefault(classFq, Collections.emptyList()));
+            writeStrings(out, declarations.propertyTypes.getOrDefault(classFq, Collections.emptyList()));
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer) {
+        int count = readCount(buffer);
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(readString(buffer));
+        }
+        return strings;
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * A corrupt length must not allocate more than the rest of the file could hold.
+     */
+    private static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Invalid length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Every counted element takes at least four bytes, so a corrupt count can't presize a huge collection.
+     */
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalStateException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * The declarations of the classes in a source file that other source files' migration depends on.
+     */
+    @Value
+    public static class Declarations {
+        public static final Declarations NONE = new Declarations(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+        /**
+         * Plain properties by declaring class.
+         */
+        Map<String, Set<String>> plainProperties;
+
+        /**
+         * Name and return type of the methods returning a Property, by declaring class.
+         */
+        Map<String, List<String>> propertyGetters;
+
+        /**
+         * Simple names of the extended class and the implemented interfaces as written in the source, by declaring
+         * class. Every class declared in the source file has an entry, so they can be attributed when another batch
+         * uses them before their supertypes are parsed.
+         */
+        Map<String, List<String>> supertypes;
+
+        /**
+         * Simple names in the type arguments of the Property getters as written in the source, by declaring class.
+         * Unlike the return types of {@link #propertyGetters} they name types that were not attributed.
+         */
+        Map<String, List<String>> propertyTypes;
+
+        /**
+         * @param registry the registry the source file was scanned into
+         */
+        public static Declarations of(JavaSourceFile cu, PlainPropertyRegistry registry) {
+            Map<String, Set<String>> plainProperties = new LinkedHashMap<>();
+            Map<String, List<String>> propertyGetters = new LinkedHashMap<>();
+            Map<String, List<String>> supertypes = new LinkedHashMap<>();
+            Map<String, List<String>> propertyTypes = new LinkedHashMap<>();
+            for (Map.Entry<String, J.ClassDeclaration> declared : declaredClasses(cu).entrySet()) {
+                JavaType.FullyQualified type = declared.getValue().getType();
+                supertypes.put(declared.getKey(), supertypes(declared.getValue()));
+                List<String> types = propertyTypes(declared.getValue());
+                if (!types.isEmpty()) {
+                    propertyTypes.put(declared.getKey(), types);
+                }
+                Set<String> properties = registry.get(declared.getKey()).getProperties();
+                if (!properties.isEmpty()) {
+                    plainProperties.put(declared.getKey(), new LinkedHashSet<>(properties));
+                }
+                List<String> getters = new ArrayList<>();
+                for (JavaType.Method method : type.getMethods()) {
+                    if (PROPERTY_MATCHER.matches(method.getReturnType())) {
+                        getters.add(method.getName() + ":" + method.getReturnType());
+                    }
+                }
+                if (!getters.isEmpty()) {
+                    Collections.sort(getters);
+                    propertyGetters.put(declared.getKey(), getters);
+                }
+            }
+            return new Declarations(plainProperties, propertyGetters, supertypes, propertyTypes);
+        }
+
+        private static List<String> supertypes(J.ClassDeclaration classDecl) {
+            List<String> supertypes = new ArrayList<>();
+            if (classDecl.getExtends() != null) {
+                supertypes.add(simpleName(classDecl.getExtends()));
+            }
+            if (classDecl.getImplements() != null) {
+                for (TypeTree implemented : classDecl.getImplements()) {
+                    supertypes.add(simpleName(implemented));
+                }
+            }
+            return supertypes;
+        }
+
+        private static List<String> propertyTypes(J.ClassDeclaration classDecl) {
+            Set<String> types = new TreeSet<>();
+            for (Statement statement : classDecl.getBody().getStatements()) {
+                if (statement instanceof J.MethodDeclaration) {
+                    TypeTree returnType = ((J.MethodDeclaration) statement).getReturnTypeExpression();
+                    if (returnType instanceof J.ParameterizedType && PROPERTY_MATCHER.matches(returnType.getType())) {
+                        addTypeArguments((J.ParameterizedType) returnType, types);
+                    }
+                }
+            }
+            return new ArrayList<>(types);
+        }
+
+        private static void addTypeArguments(J.ParameterizedType type, Set<String> types) {
+            if (type.getTypeParameters() != null) {
+                for (Expression typeArgument : type.getTypeParameters()) {
+                    if (typeArgument instanceof J.ParameterizedType) {
+                        types.add(simpleName(typeArgument));
+                        addTypeArguments((J.ParameterizedType) typeArgument, types);
+                    } else if (typeArgument instanceof J.Identifier || typeArgument instanceof J.FieldAccess) {
+                        types.add(simpleName(typeArgument));
+                    }
+                }
+            }
+        }
+
+        private static String simpleName(J typeTree) {
+            if (typeTree instanceof J.ParameterizedType) {
+                return simpleName(((J.ParameterizedType) typeTree).getClazz());
+            }
+            if (typeTree instanceof J.FieldAccess) {
+                return ((J.FieldAccess) typeTree).getSimpleName();
+            }
+            return typeTree instanceof J.Identifier ? ((J.Identifier) typeTree).getSimpleName() : typeTree.printTrimmed();
+        }
+
+        private static Map<String, J.ClassDeclaration> declaredClasses(JavaSourceFile cu) {
+            Map<String, J.ClassDeclaration> declared = new TreeMap<>();
+            for (J.ClassDeclaration classDecl : cu.getClasses()) {
+                addDeclaredClasses(classDecl, declared);
+            }
+            return declared;
+        }
+
+        private static void addDeclaredClasses(J.ClassDeclaration classDecl, Map<String, J.ClassDeclaration> declared) {
+            if (classDecl.getType() != null) {
+                declared.put(classDecl.getType().getFullyQualifiedName(), classDecl);
+            }
+            for (Statement statement : classDecl.getBody().getStatements()) {
+                if (statement instanceof J.ClassDeclaration) {
+                    addDeclaredClasses((J.ClassDeclaration) statement, declared);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the length of the string encoded in UTF-8, without encoding it.
+     */
+    static long utf8Length(String s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A previous migration result of a source file.
+     */
+    @Value
+    public static class CachedResult {
+        List<String> dependencies;
+        byte[] dependencyHash;
+
+        /**
+         * The migrated source, or null if the migration did not change the source file.
+         */
+        @Nullable
+        String after;
+
+        public boolean isChanged() {
+            return after != null;
+        }
+    }
+
+    private static class Entry {
+        private final byte[] contentHash;
+        private final Declarations declarations;
+
+        /**
+         * The result of a loaded entry lacks the migrated source, which stays at {@link #afterOffset} in the mapping.
+         */
+        @Nullable
+        private final CachedResult result;
+
+        /**
+         * The position of the migrated source of a loaded entry in the mapping, or -1.
+         */
+        private final int afterOffset;
+        private final int afterLength;
+
+        private volatile long lastUsed;
+
+        private Entry(byte[] contentHash, Declarations declarations, @Nullable CachedResult result, long lastUsed) {
+            this(contentHash, declarations, result, -1, 0, lastUsed);
+        }
+
+        private Entry(byte[] contentHash, Declarations declarations, @Nullable CachedResult result,
+                      int afterOffset, int afterLength, long lastUsed) {
+            this.contentHash = contentHash;
+            this.declarations = declarations;
+            this.result = result;
+            this.afterOffset = afterOffset;
+            this.afterLength = afterLength;
+            this.lastUsed = lastUsed;
+        }
+
+        private long size() {
+            if (afterOffset >= 0) {
+                return afterLength;
+            }
+            return result == null || result.after == null ? 0 : utf8Length(result.after);
+        }
+    }
+}
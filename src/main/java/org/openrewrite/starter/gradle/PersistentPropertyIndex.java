@@ -0,0 +1,245 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.starter.gradle.MigrationResultCache.Declarations;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk index of the {@link Declarations} collected from every source file, keyed by source path and
+ * a SHA-256 hash of the raw file content. The runners hash a source file when they read it and look it up
+ * before parsing it: unchanged files are not parsed in the first pass, their plain properties are merged into the
+ * {@link PlainPropertyRegistry} and their declared classes are kept for the second pass like those of a parsed file.
+ * <p>
+ * The file is memory-mapped on load and only the source paths are read up front, an entry is decoded
+ * from the mapping when its source file is looked up. On {@link #save()} the file is rewritten with the
+ * entries of the files seen in the current run, so entries of deleted files are dropped.
+ */
+public class PersistentPropertyIndex {
+
+    private static final int MAGIC = 0x50504958;
+    private static final int VERSION = 3;
+
+    private final Path file;
+    @Nullable
+    private final ByteBuffer mapped;
+    private final Map<String, Integer> offsets;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private PersistentPropertyIndex(Path file, @Nullable ByteBuffer mapped, Map<String, Integer> offsets) {
+        this.file = file;
+        this.mapped = mapped;
+        this.offsets = offsets;
+    }
+
+    public static PersistentPropertyIndex load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return empty(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed, save() replaces the file instead of writing into it
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.duplicate();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return empty(file);
+            }
+            int entryCount = buffer.getInt();
+            Map<String, Integer> offsets = new HashMap<>();
+            for (int i = 0; i < entryCount; i++) {
+                String sourcePath = readString(buffer);
+                int length = readLength(buffer);
+                offsets.put(sourcePath, buffer.position());
+                buffer.position(buffer.position() + length);
+            }
+            return new PersistentPropertyIndex(file, mapped, offsets);
+        } catch (IOException | RuntimeException e) {
+            // A truncated or unreadable index is not fatal, every file is simply scanned again
+            return empty(file);
+        }
+    }
+
+    private static PersistentPropertyIndex empty(Path file) {
+        return new PersistentPropertyIndex(file, null, Collections.emptyMap());
+    }
+
+    /**
+     * @return the declarations previously collected from the source file, or null if the file is new or its content changed.
+     */
+    public @Nullable Declarations lookup(Path sourcePath, byte[] contentHash) {
+        String key = sourcePath.toString();
+        Integer offset = offsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        Entry entry = decode(offset, contentHash);
+        if (entry == null) {
+            return null;
+        }
+        current.put(key, entry);
+        return entry.declarations;
+    }
+
+    public void put(Path sourcePath, byte[] contentHash, Declarations declarations) {
+        current.put(sourcePath.toString(), new Entry(contentHash, declarations));
+    }
+
+    /**
+     * Adds the entries loaded by another index, e.g. a partial index written by one shard of a sharded run.
+     */
+    public void putAll(PersistentPropertyIndex other) {
+        current.putAll(other.decodeAll());
+    }
+
+    /**
+     * @return the plain properties of every loaded entry by declaring class, to register them without scanning any source file.
+     */
+    public Map<String, Set<String>> getPlainProperties() {
+        Map<String, Set<String>> plainProperties = new LinkedHashMap<>();
+        for (Entry entry : decodeAll().values()) {
+            for (Map.Entry<String, Set<String>> classProperties : entry.declarations.getPlainProperties().entrySet()) {
+                plainProperties.computeIfAbsent(classProperties.getKey(), k -> new LinkedHashSet<>()).addAll(classProperties.getValue());
+            }
+        }
+        return plainProperties;
+    }
+
+    public void save() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                Map<String, Entry> sorted = new TreeMap<>(current);
+                out.writeInt(sorted.size());
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for (Map.Entry<String, Entry> entry : sorted.entrySet()) {
+                    bytes.reset();
+                    DataOutputStream entryOut = new DataOutputStream(bytes);
+                    entryOut.writeInt(entry.getValue().hash.length);
+                    entryOut.write(entry.getValue().hash);
+                    MigrationResultCache.writeDeclarations(entryOut, entry.getValue().declarations);
+                    // The length lets load() skip the entry without decoding it
+                    writeString(out, entry.getKey());
+                    out.writeInt(bytes.size());
+                    bytes.writeTo(out);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write property index " + file, e);
+        }
+    }
+
+    public static byte[] contentHash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Entry> decodeAll() {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> offset : offsets.entrySet()) {
+            Entry entry = decode(offset.getValue(), null);
+            if (entry != null) {
+                entries.put(offset.getKey(), entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return the entry at the offset, or null if its hash differs from the expected hash or it can't be decoded.
+     */
+    private @Nullable Entry decode(int offset, @Nullable byte[] expectedHash) {
+        if (mapped == null) {
+            return null;
+        }
+        // A duplicate has its own position, so concurrent lookups don't interfere
+        ByteBuffer buffer = mapped.duplicate();
+        try {
+            buffer.position(offset);
+            byte[] hash = new byte[readLength(buffer)];
+            buffer.get(hash);
+            if (expectedHash != null && !Arrays.equals(hash, expectedHash)) {
+                return null;
+            }
+            return new Entry(hash, MigrationResultCache.readDeclarations(buffer));
+        } catch (RuntimeException e) {
+            // A corrupt entry is treated like a changed file and scanned again
+            return null;
+        }
+    }
+
+    private static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Invalid length " + length);
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static class Entry {
+        private final byte[] hash;
+        private final Declarations declarations;
+
+        private Entry(byte[] hash, Declarations declarations) {
+            this.hash = hash;
+            this.declarations = declarations;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plain properties collected per task class. The registry is shared between recipes through the
+ * {@link ExecutionContext}, visitors resolve {@link ClassProperties} once per class declaration
+ * and then answer membership checks against it directly.
+ * <p>
+ * Properties are registered for the class that declares them. {@link #getInherited(JavaType.FullyQualified)} also
+ * covers the properties a class inherits from its supertypes: the inheritance closure of every type is computed once,
+ * from the closures of its superclass and interfaces, and then looked up by name until a registration changes.
+ * A closure computed while a registration changed is returned but not kept, so a lookup racing with a registration
+ * never leaves a stale closure behind.
+ */
+public class PlainPropertyRegistry {
+
+    private static final String REGISTRY_MESSAGE = "plain-property-registry";
+
+    private final Map<String, ClassProperties> classes = new ConcurrentHashMap<>();
+
+    /**
+     * Declared and inherited properties by class, computed on first lookup. Stored and cleared while holding the map.
+     */
+    private final Map<String, ClassProperties> inherited = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever a registration changes, while holding {@link #inherited}.
+     */
+    private volatile long version;
+
+    public static PlainPropertyRegistry from(ExecutionContext executionContext) {
+        PlainPropertyRegistry registry = executionContext.getMessage(REGISTRY_MESSAGE);
+        if (registry == null) {
+            synchronized (executionContext) {
+                registry = executionContext.getMessage(REGISTRY_MESSAGE);
+                if (registry == null) {
+                    registry = new PlainPropertyRegistry();
+                    executionContext.putMessage(REGISTRY_MESSAGE, registry);
+                }
+            }
+        }
+        return registry;
+    }
+
+    public ClassProperties register(String classFq) {
+        ClassProperties properties = classes.get(classFq);
+        if (properties == null) {
+            properties = classes.computeIfAbsent(classFq, fq -> new ClassProperties(fq, this));
+            invalidateInherited();
+        }
+        return properties;
+    }
+
+    public void registerAll(Map<String, ? extends Collection<String>> classProperties) {
+        for (Map.Entry<String, ? extends Collection<String>> entry : classProperties.entrySet()) {
+            ClassProperties properties = register(entry.getKey());
+            for (String property : entry.getValue()) {
+                properties.add(property);
+            }
+        }
+    }
+
+    public ClassProperties get(@Nullable JavaType.FullyQualified type) {
+        if (type == null) {
+            return ClassProperties.NONE;
+        }
+        return get(type.getFullyQualifiedName());
+    }
+
+    public ClassProperties get(String classFq) {
+        return classes.getOrDefault(classFq, ClassProperties.NONE);
+    }
+
+    /**
+     * @return the plain properties the class declares or inherits from its superclasses and interfaces.
+     */
+    public ClassProperties getInherited(@Nullable JavaType.FullyQualified type) {
+        if (type == null || classes.isEmpty()) {
+            return ClassProperties.NONE;
+        }
+        ClassProperties closure = inherited.get(type.getFullyQualifiedName());
+        if (closure == null) {
+            long computedAt = version;
+            Set<String> properties = new HashSet<>(get(type).getProperties());
+            JavaType.FullyQualified supertype = type.getSupertype();
+            if (supertype != null) {
+                properties.addAll(getInherited(supertype).getProperties());
+            }
+            for (JavaType.FullyQualified anInterface : type.getInterfaces()) {
+                properties.addAll(getInherited(anInterface).getProperties());
+            }
+            closure = properties.isEmpty()
+                    ? ClassProperties.NONE
+                    : new ClassProperties(type.getFullyQualifiedName(), Collections.unmodifiableSet(properties), null);
+            synchronized (inherited) {
+                if (version == computedAt) {
+                    inherited.put(type.getFullyQualifiedName(), closure);
+                }
+            }
+        }
+        return closure;
+    }
+
+    private void invalidateInherited() {
+        synchronized (inherited) {
+            version++;
+            inherited.clear();
+        }
+    }
+
+    public Map<String, ClassProperties> getClasses() {
+        return Collections.unmodifiableMap(classes);
+    }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    public static class ClassProperties {
+
+        public static final ClassProperties NONE = new ClassProperties("", Collections.emptySet(), null);
+
+        private final String classFq;
+        private final Set<String> properties;
+
+        /**
+         * The registry whose inheritance closures include these properties, null for computed closures.
+         */
+        @Nullable
+        private final PlainPropertyRegistry registry;
+
+        private ClassProperties(String classFq, PlainPropertyRegistry registry) {
+            this(classFq, ConcurrentHashMap.newKeySet(), registry);
+        }
+
+        private ClassProperties(String classFq, Set<String> properties, @Nullable PlainPropertyRegistry registry) {
+            this.classFq = classFq;
+            this.properties = properties;
+            this.registry = registry;
+        }
+
+        public void add(String property) {
+            if (properties.add(property) && registry != null) {
+                registry.invalidateInherited();
+            }
+        }
+
+        public boolean contains(String property) {
+            return properties.contains(property);
+        }
+
+        public boolean isEmpty() {
+            return properties.isEmpty();
+        }
+
+        public int size() {
+            return properties.size();
+        }
+
+        public String getClassFq() {
+            return classFq;
+        }
+
+        public Set<String> getProperties() {
+            return Collections.unmodifiableSet(properties);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.java.tree.Expression;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JContainer;
+import org.openrewrite.java.tree.JRightPadded;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.Space;
+import org.openrewrite.marker.Markers;
+
+import java.util.Collections;
+
+/**
+ * The shape of the rewrite of {@code task.setProperty(value)} to {@code task.getProperty().set(value)}, built once
+ * per resolved setter. Applying it to a call site only allocates the new nodes, with ids from {@link NodeIds};
+ * the prefix, markers, select padding and arguments of the original call site are kept. The {@code Property.set}
+ * method type takes the type of the argument of the call site, which differs between call sites sharing a template,
+ * e.g. {@code setCount(1)} and {@code setCount(Integer.valueOf(1))}.
+ */
+public class PropertySetTemplate {
+
+    private final JavaType.Method getter;
+    private final JavaType.Method propertySet;
+    private final String getterName;
+    private final String propertySetName;
+
+    public PropertySetTemplate(JavaType.Method getter, JavaType.Method propertySet) {
+        this.getter = getter;
+        this.propertySet = propertySet;
+        this.getterName = getter.getName();
+        this.propertySetName = propertySet.getName();
+    }
+
+    public JavaType.Method getGetter() {
+        return getter;
+    }
+
+    public JavaType.Method getPropertySet() {
+        return propertySet;
+    }
+
+    public J.MethodInvocation apply(J.MethodInvocation setterInvocation) {
+        J.MethodInvocation.Padding padding = setterInvocation.getPadding();
+        // Create method call like `task.getProperty()`
+        J.MethodInvocation getPropertyCall = new J.MethodInvocation(
+                NodeIds.randomId(),
+                Space.EMPTY,
+                Markers.EMPTY,
+                JRightPadded.build(setterInvocation.getSelect()),
+                null,
+                new J.Identifier(NodeIds.randomId(), Space.EMPTY, Markers.EMPTY, getterName, null, null),
+                JContainer.empty(),
+                getter
+        );
+        // Modify `setProperty` method to be like `task.getProperty().set(value)`
+        return new J.MethodInvocation(
+                NodeIds.randomId(),
+                setterInvocation.getPrefix(),
+                setterInvocation.getMarkers(),
+                JRightPadded.<Expression>withElement(padding.getSelect(), getPropertyCall),
+                padding.getTypeParameters(),
+                new J.Identifier(NodeIds.randomId(), Space.EMPTY, Markers.EMPTY, propertySetName, null, null),
+                padding.getArguments(),
+                propertySet.withParameterTypes(Collections.singletonList(setterInvocation.getArguments().get(0).getType()))
+        );
+    }
+}
@@ -1,39 +1,49 @@
 package org.openrewrite.starter.gradle;
 
-import org.openrewrite.Tree;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.tree.J;
 import org.openrewrite.java.tree.JavaType;
 import org.openrewrite.java.tree.Space;
 import org.openrewrite.marker.Markers;
 
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Collections.emptyList;
-import static org.openrewrite.starter.gradle.GradleConstants.INPUT_ANNOTATION_PATTERN;
-import static org.openrewrite.starter.gradle.GradleConstants.PROPERTY_PATTERN;
+import static org.openrewrite.starter.gradle.GradleConstants.INPUT_ANNOTATION_MATCHER;
+import static org.openrewrite.starter.gradle.GradleConstants.PROPERTY_MATCHER;
 
 public class RecipeUtils {
 
+    private static final Map<String, String> BOXED_SIMPLE_NAMES = new ConcurrentHashMap<>();
+
     public static boolean isSetter(J.MethodDeclaration method) {
         // TODO check also types
-        return method.getName().getSimpleName().startsWith("set");
+        return AccessorName.of(method.getSimpleName()).isSetter();
     }
 
     public static boolean isSetter(J.MethodInvocation method) {
         // TODO check also types
-        return method.getName().getSimpleName().startsWith("set") && method.getArguments().size() == 1;
+        return method.getArguments().size() == 1 && AccessorName.of(method.getSimpleName()).isSetter();
     }
 
     public static boolean isVariableForPlainProperty(J.VariableDeclarations variableDeclarations) {
-        return variableDeclarations.getType() != null && !variableDeclarations.getType().isAssignableFrom(PROPERTY_PATTERN);
+        return variableDeclarations.getType() != null && !PROPERTY_MATCHER.matches(variableDeclarations.getType());
     }
 
     public static boolean isGetterForPlainProperty(J.MethodDeclaration method) {
-        return (method.getName().getSimpleName().startsWith("get") || method.getName().getSimpleName().startsWith("is"))
-                && method.getLeadingAnnotations().stream().anyMatch(annotation -> annotation.getAnnotationType().getType().isAssignableFrom(INPUT_ANNOTATION_PATTERN))
+        return method.getLeadingAnnotations().stream().anyMatch(annotation -> INPUT_ANNOTATION_MATCHER.matches(annotation.getAnnotationType().getType()))
+                && isPlainGetter(method);
+    }
+
+    /**
+     * @return whether the method is a getter with a declared return type other than Property, annotated or not.
+     */
+    public static boolean isPlainGetter(J.MethodDeclaration method) {
+        return AccessorName.of(method.getSimpleName()).isGetter()
                 && method.getReturnTypeExpression() != null
                 && method.getReturnTypeExpression().getType() != null
-                && !method.getReturnTypeExpression().getType().isAssignableFrom(PROPERTY_PATTERN);
+                && !PROPERTY_MATCHER.matches(method.getReturnTypeExpression().getType());
     }
 
     public static String getterToField(J.MethodDeclaration method) {
@@ -41,22 +51,20 @@ public class RecipeUtils {
     }
 
     public static String getterToField(String getterName) {
-        String property = getterName.replace("get", "").replace("is", "");
-        return property.substring(0, 1).toLowerCase() + property.substring(1);
+        return AccessorName.of(getterName).getPropertyName();
     }
 
     public static String setterToField(J.MethodDeclaration method) {
-        String property = method.getSimpleName().replace("set", "");
-        return property.substring(0, 1).toLowerCase() + property.substring(1);
+        return AccessorName.of(method.getSimpleName()).getPropertyName();
     }
 
     public static String setterToGetter(J.MethodInvocation method) {
-        return method.getSimpleName().replace("set", "get");
+        return AccessorName.of(method.getSimpleName()).getGetterName();
     }
 
     public static J.Modifier newModifier(J.Modifier.Type type) {
         return new J.Modifier(
-                Tree.randomId(),
+                NodeIds.randomId(),
                 Space.build(" ", emptyList()),
                 Markers.EMPTY,
                 type,
@@ -64,7 +72,35 @@ public class RecipeUtils {
         );
     }
 
+    /**
+     * @return the simple name of the boxed type, e.g. {@code Integer} for {@code int}.
+     */
+    public static String getPrimitiveBoxedSimpleName(JavaType.Primitive primitive) {
+        String boxedType = getPrimitiveBoxedType(primitive);
+        // All boxed types are in java.lang, the substring only allocates for the first lookup of a keyword
+        return BOXED_SIMPLE_NAMES.computeIfAbsent(boxedType, name -> name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * @return the source of a Property type with the given type argument, e.g. {@code Property<String>}.
+     */
+    public static String getPropertyTypeName(String typeArgument) {
+        return "Property<" + typeArgument + ">";
+    }
+
     public static String getPrimitiveBoxedType(JavaType.Primitive primitive) {
+        String boxedType = findPrimitiveBoxedType(primitive);
+        if (boxedType == null) {
+            throw new UnsupportedOperationException("Can't wrap primitive type: " + primitive.getKeyword());
+        }
+        return boxedType;
+    }
+
+    /**
+     * @return the boxed type, or null for the types of {@code null} literals and unattributed expressions.
+     */
+    @Nullable
+    public static String findPrimitiveBoxedType(JavaType.Primitive primitive) {
         switch (primitive.getKeyword()) {
             case "boolean":
                 return Boolean.class.getName();
@@ -87,7 +123,7 @@ public class RecipeUtils {
             case "void":
                 return Void.class.getName();
             default:
-                throw new UnsupportedOperationException("Can't wrap primitive type: " + primitive.getKeyword());
+                return null;
         }
     }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import lombok.Value;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.starter.metrics.MigrationMetrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of setter invocation resolutions, keyed by receiver type, setter name and argument type.
+ * Call sites on the same task type resolve the Property getter and the {@code Property.set} method only once.
+ */
+public class SetterResolutionCache {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final String CACHE_MESSAGE = "setter-resolution-cache";
+
+    private final Map<Key, Resolution> resolutions;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SetterResolutionCache(int maxSize) {
+        this.resolutions = Collections.synchronizedMap(new LinkedHashMap<Key, Resolution>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Resolution> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    public static SetterResolutionCache from(ExecutionContext executionContext) {
+        SetterResolutionCache cache = executionContext.getMessage(CACHE_MESSAGE);
+        if (cache == null) {
+            synchronized (executionContext) {
+                cache = executionContext.getMessage(CACHE_MESSAGE);
+                if (cache == null) {
+                    cache = new SetterResolutionCache(DEFAULT_MAX_SIZE);
+                    executionContext.putMessage(CACHE_MESSAGE, cache);
+                }
+            }
+        }
+        return cache;
+    }
+
+    public Resolution resolve(JavaType.FullyQualified receiverType, String setterName, String argumentType,
+                              MigrationMetrics metrics, Supplier<Resolution> resolver) {
+        Key key = new Key(receiverType.getFullyQualifiedName(), setterName, argumentType);
+        Resolution resolution = resolutions.get(key);
+        if (resolution != null) {
+            hits.incrementAndGet();
+            metrics.increment(MigrationMetrics.Counter.RESOLUTION_CACHE_HITS);
+            return resolution;
+        }
+        misses.incrementAndGet();
+        metrics.increment(MigrationMetrics.Counter.RESOLUTION_CACHE_MISSES);
+        resolution = resolver.get();
+        resolutions.put(key, resolution);
+        return resolution;
+    }
+
+    /**
+     * Drops all resolutions. Resolutions reference the types of the source files they were resolved for,
+     * so callers that parse source files in batches clear the cache when a batch is done.
+     */
+    public void clear() {
+        resolutions.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return resolutions.size();
+    }
+
+    @Value
+    private static class Key {
+        String receiverType;
+        String setterName;
+        String argumentType;
+    }
+
+    /**
+     * The Property getter and {@code Property.set} method a setter invocation is rewritten with. The templates are only
+     * built when a call site is rewritten, so read-only visitors that only check {@link #isResolved()} never build them.
+     */
+    public static class Resolution {
+        public static final Resolution NONE = new Resolution(null, null);
+
+        @Nullable
+        private final JavaType.Method getter;
+
+        @Nullable
+        private final JavaType.Method propertySet;
+
+        @Nullable
+        private volatile PropertySetTemplate template;
+
+        @Nullable
+        private volatile PropertySetTemplate groovyTemplate;
+
+        public Resolution(JavaType.@Nullable Method getter, JavaType.@Nullable Method propertySet) {
+            this.getter = getter;
+            this.propertySet = propertySet;
+        }
+
+        public boolean isResolved() {
+            return getter != null && propertySet != null;
+        }
+
+        /**
+         * @return the template rewriting the setter invocation with the Property getter matching the setter,
+         * e.g. {@code getProperty()}, or null when the setter is not resolved.
+         */
+        @Nullable
+        public PropertySetTemplate getTemplate() {
+            if (template == null && isResolved()) {
+                // Racing threads build equal templates, either one may be kept
+                template = new PropertySetTemplate(getter, propertySet);
+            }
+            return template;
+        }
+
+        /**
+         * @return the template rewriting the setter invocation with the getter in Groovy property style,
+         * e.g. {@code property}, or null when the setter is not resolved.
+         */
+        @Nullable
+        public PropertySetTemplate getGroovyTemplate() {
+            if (groovyTemplate == null && isResolved()) {
+                // For now instead of getProperty we use property, but in the future we could also define
+                // the type if the getter is defined as "def getProperty()"
+                groovyTemplate = new PropertySetTemplate(getter.withName(RecipeUtils.getterToField(getter.getName())), propertySet);
+            }
+            return groovyTemplate;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.Statement;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.openrewrite.starter.gradle.GradleConstants.INPUT_ANNOTATION_MATCHER;
+import static org.openrewrite.starter.gradle.GradleConstants.PROPERTY_MATCHER;
+
+/**
+ * Cheap checks that reject source files a phase of the migration would not change, before they are visited.
+ * The checks read the types in use of a source file, which are collected once and cached on the source file,
+ * so all phases share a single walk of an unaffected file instead of visiting it fully every time.
+ * A check may accept a file that the phase then leaves unchanged, but never rejects one it would change.
+ * <p>
+ * Only Java compilation units are checked. Other languages like Groovy are always accepted, the types in use
+ * of their trees are not guaranteed to be complete.
+ */
+public class SourceFilePrefilter {
+
+    private static final String PREFILTER_MESSAGE = "source-file-prefilter";
+
+    /**
+     * Whether a type declares or inherits a method returning a {@code Property}, by type name.
+     */
+    private final Map<String, Boolean> declaresPropertyGetter = new ConcurrentHashMap<>();
+
+    public static SourceFilePrefilter from(ExecutionContext executionContext) {
+        SourceFilePrefilter prefilter = executionContext.getMessage(PREFILTER_MESSAGE);
+        if (prefilter == null) {
+            synchronized (executionContext) {
+                prefilter = executionContext.getMessage(PREFILTER_MESSAGE);
+                if (prefilter == null) {
+                    prefilter = new SourceFilePrefilter();
+                    executionContext.putMessage(PREFILTER_MESSAGE, prefilter);
+                }
+            }
+        }
+        return prefilter;
+    }
+
+    /**
+     * @return false if the source file doesn't use the {@code @Input} annotation, so it can't declare plain properties.
+     */
+    public boolean mayDeclarePlainProperties(JavaSourceFile cu) {
+        if (!(cu instanceof J.CompilationUnit)) {
+            return true;
+        }
+        for (JavaType type : cu.getTypesInUse().getTypesInUse()) {
+            if (INPUT_ANNOTATION_MATCHER.matchesExactly(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return false if the source file declares no class with collected plain properties, declared or inherited.
+     */
+    public boolean mayDeclareRegisteredClass(JavaSourceFile cu, PlainPropertyRegistry registry) {
+        if (registry.isEmpty()) {
+            return false;
+        }
+        if (!(cu instanceof J.CompilationUnit)) {
+            return true;
+        }
+        for (J.ClassDeclaration classDecl : cu.getClasses()) {
+            if (isRegistered(classDecl, registry)) {
+                return true;
+            }
+        }
+        // Local classes are not reachable from the class structure, but their methods are in the types in use
+        for (JavaType.Method method : cu.getTypesInUse().getDeclaredMethods()) {
+            if (!registry.getInherited(method.getDeclaringType()).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A setter invocation is only rewritten when its receiver has a getter returning a {@code Property}, and
+     * the receiver is an identifier whose type is in the types in use.
+     *
+     * @return false if no type used in the source file declares or inherits a method returning a {@code Property}.
+     */
+    public boolean mayCallPropertySetters(JavaSourceFile cu) {
+        if (!(cu instanceof J.CompilationUnit)) {
+            return true;
+        }
+        for (JavaType type : cu.getTypesInUse().getTypesInUse()) {
+            if (type instanceof JavaType.FullyQualified && declaresPropertyGetter((JavaType.FullyQualified) type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean declaresPropertyGetter(@Nullable JavaType.FullyQualified type) {
+        if (type == null) {
+            return false;
+        }
+        String name = type.getFullyQualifiedName();
+        Boolean memoized = declaresPropertyGetter.get(name);
+        if (memoized == null) {
+            memoized = false;
+            for (JavaType.Method method : type.getMethods()) {
+                if (PROPERTY_MATCHER.matches(method.getReturnType())) {
+                    memoized = true;
+                    break;
+                }
+            }
+            if (!memoized) {
+                memoized = declaresPropertyGetter(type.getSupertype())
+                        || type.getInterfaces().stream().anyMatch(this::declaresPropertyGetter);
+            }
+            declaresPropertyGetter.put(name, memoized);
+        }
+        return memoized;
+    }
+
+    private static boolean isRegistered(J.ClassDeclaration classDecl, PlainPropertyRegistry registry) {
+        if (!registry.getInherited(classDecl.getType()).isEmpty()) {
+            return true;
+        }
+        for (Statement statement : classDecl.getBody().getStatements()) {
+            if (statement instanceof J.ClassDeclaration && isRegistered((J.ClassDeclaration) statement, registry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.groovy.tree.G;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.starter.gradle.SetterResolutionCache.Resolution;
+
+/**
+ * Language of a visited source file, resolved once per source file from the type of its LST.
+ * Every language picks its own variant of a resolved setter rewrite, so visitors do not branch
+ * on the source file for every call site.
+ */
+public enum SourceLanguage {
+
+    JAVA("java") {
+        @Override
+        public @Nullable PropertySetTemplate getPropertySetTemplate(Resolution resolution) {
+            return resolution.getTemplate();
+        }
+    },
+
+    /**
+     * Groovy source files and Gradle build scripts, which access the Property getter in property style.
+     */
+    GROOVY("groovy") {
+        @Override
+        public @Nullable PropertySetTemplate getPropertySetTemplate(Resolution resolution) {
+            return resolution.getGroovyTemplate();
+        }
+    };
+
+    private final String id;
+
+    SourceLanguage(String id) {
+        this.id = id;
+    }
+
+    public static SourceLanguage of(JavaSourceFile sourceFile) {
+        return sourceFile instanceof G.CompilationUnit ? GROOVY : JAVA;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the rewrite of the setter invocation in this language, or null when the setter was not resolved.
+     */
+    public abstract @Nullable PropertySetTemplate getPropertySetTemplate(Resolution resolution);
+}
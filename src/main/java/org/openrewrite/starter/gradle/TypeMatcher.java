@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaType;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches types against a fully qualified name without regular expressions. A type matches when it is the
+ * type itself or extends or implements it, which is what {@link JavaType#isAssignableFrom(java.util.regex.Pattern)}
+ * checks for a literal pattern. Exact names are compared by identity first, and the supertype walk is
+ * memoized for fully attributed classes.
+ * <p>
+ * A parser attributes every use of a class with the same type instance, so the memo only answers for the instance
+ * it was computed for. A class of the same name parsed by another parser, e.g. of another repository or another
+ * batch, may have other supertypes and is walked again. The memo keeps at most {@link #MAX_MEMOIZED} classes and
+ * does not keep their types from being collected. Matchers are immutable apart from their memo, create them once
+ * and keep them like the constants in {@link GradleConstants}.
+ */
+public class TypeMatcher {
+
+    public static final int MAX_MEMOIZED = 4096;
+
+    private final String fullyQualifiedName;
+    private final Map<String, Memoized> assignableFrom = new ConcurrentHashMap<>();
+
+    private TypeMatcher(String fullyQualifiedName) {
+        this.fullyQualifiedName = fullyQualifiedName;
+    }
+
+    public static TypeMatcher of(String fullyQualifiedName) {
+        return new TypeMatcher(fullyQualifiedName);
+    }
+
+    public String getFullyQualifiedName() {
+        return fullyQualifiedName;
+    }
+
+    /**
+     * @return true if the type has exactly the fully qualified name of this matcher, supertypes are not checked.
+     */
+    public boolean matchesExactly(@Nullable JavaType type) {
+        return type instanceof JavaType.FullyQualified && isName(((JavaType.FullyQualified) type).getFullyQualifiedName());
+    }
+
+    /**
+     * @return true if the type is, extends or implements the type of this matcher.
+     */
+    public boolean matches(@Nullable JavaType type) {
+        if (type instanceof JavaType.Parameterized) {
+            type = ((JavaType.Parameterized) type).getType();
+        }
+        if (type instanceof JavaType.Class) {
+            JavaType.Class clazz = (JavaType.Class) type;
+            String name = clazz.getFullyQualifiedName();
+            if (isName(name)) {
+                return true;
+            }
+            Memoized memoized = assignableFrom.get(name);
+            if (memoized == null || memoized.type.get() != clazz) {
+                if (assignableFrom.size() >= MAX_MEMOIZED) {
+                    assignableFrom.clear();
+                }
+                memoized = new Memoized(clazz, matchesSupertypes(clazz));
+                assignableFrom.put(name, memoized);
+            }
+            return memoized.matches;
+        }
+        if (type instanceof JavaType.FullyQualified) {
+            JavaType.FullyQualified fq = (JavaType.FullyQualified) type;
+            return isName(fq.getFullyQualifiedName()) || matchesSupertypes(fq);
+        }
+        if (type instanceof JavaType.GenericTypeVariable) {
+            for (JavaType bound : ((JavaType.GenericTypeVariable) type).getBounds()) {
+                if (matches(bound)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesSupertypes(JavaType.FullyQualified type) {
+        if (type.getSupertype() != null && matches(type.getSupertype())) {
+            return true;
+        }
+        for (JavaType.FullyQualified anInterface : type.getInterfaces()) {
+            if (matches(anInterface)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("StringEquality")
+    private boolean isName(String name) {
+        return name == fullyQualifiedName || name.equals(fullyQualifiedName);
+    }
+
+    /**
+     * @return the number of memoized classes.
+     */
+    int memoized() {
+        return assignableFrom.size();
+    }
+
+    private static class Memoized {
+        private final WeakReference<JavaType.Class> type;
+        private final boolean matches;
+
+        private Memoized(JavaType.Class type, boolean matches) {
+            this.type = new WeakReference<>(type);
+            this.matches = matches;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Accumulates migration metrics in memory and hands a human readable summary to a listener when the run finishes.
+ * Without a listener the summary is only available from {@link #summary()}.
+ */
+public class InMemoryMigrationMetrics implements MigrationMetrics {
+
+    private final Map<Counter, AtomicLong> counters = new EnumMap<>(Counter.class);
+    private final Map<Timer, AtomicLong> timerNanos = new EnumMap<>(Timer.class);
+    private final Map<Timer, AtomicLong> timerCounts = new EnumMap<>(Timer.class);
+    private final Consumer<String> summaryListener;
+
+    public InMemoryMigrationMetrics() {
+        this(summary -> {
+        });
+    }
+
+    public InMemoryMigrationMetrics(Consumer<String> summaryListener) {
+        this.summaryListener = summaryListener;
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new AtomicLong());
+        }
+        for (Timer timer : Timer.values()) {
+            timerNanos.put(timer, new AtomicLong());
+            timerCounts.put(timer, new AtomicLong());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void increment(Counter counter, long amount) {
+        counters.get(counter).addAndGet(amount);
+    }
+
+    @Override
+    public void record(Timer timer, long nanos) {
+        timerNanos.get(timer).addAndGet(nanos);
+        timerCounts.get(timer).incrementAndGet();
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter).get();
+    }
+
+    public long getTotalNanos(Timer timer) {
+        return timerNanos.get(timer).get();
+    }
+
+    public long getCount(Timer timer) {
+        return timerCounts.get(timer).get();
+    }
+
+    @Override
+    public void runFinished() {
+        summaryListener.accept(summary());
+    }
+
+    public String summary() {
+        StringBuilder summary = new StringBuilder("Provider API migration summary:\n");
+        for (Counter counter : Counter.values()) {
+            summary.append(String.format(Locale.ROOT, "  %-32s %d%n", counter.getMetricName(), getCount(counter)));
+        }
+        long classes = getCount(Counter.CLASSES_WITH_PROPERTIES);
+        summary.append(String.format(Locale.ROOT, "  %-32s %.2f%n", "collect.properties.per.class",
+                classes == 0 ? 0.0 : (double) getCount(Counter.PROPERTIES_COLLECTED) / classes));
+        appendHitRate(summary, "rewrite.resolution.cache.hit.rate", Counter.RESOLUTION_CACHE_HITS, Counter.RESOLUTION_CACHE_MISSES);
+        appendHitRate(summary, "index.hit.rate", Counter.INDEX_HITS, Counter.INDEX_MISSES);
+        appendHitRate(summary, "cache.declarations.hit.rate", Counter.DECLARATION_CACHE_HITS, Counter.DECLARATION_CACHE_MISSES);
+        appendHitRate(summary, "cache.results.hit.rate", Counter.RESULT_CACHE_HITS, Counter.RESULT_CACHE_MISSES);
+        appendHitRate(summary, "dedup.ratio", Counter.DEDUP_RESULT_HITS, Counter.DEDUP_RESULT_MISSES);
+        for (Timer timer : Timer.values()) {
+            summary.append(String.format(Locale.ROOT, "  %-32s %.1f ms in %d calls%n", timer.getMetricName(),
+                    getTotalNanos(timer) / 1_000_000.0, getCount(timer)));
+        }
+        return summary.toString();
+    }
+
+    private void appendHitRate(StringBuilder summary, String name, Counter hits, Counter misses) {
+        long lookups = getCount(hits) + getCount(misses);
+        summary.append(String.format(Locale.ROOT, "  %-32s %.1f%%%n", name,
+                lookups == 0 ? 0.0 : 100.0 * getCount(hits) / lookups));
+    }
+}
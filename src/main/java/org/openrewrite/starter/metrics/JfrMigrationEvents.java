@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import jdk.jfr.EventType;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.TypeUtils;
+import org.openrewrite.starter.gradle.SourceLanguage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The JFR side of {@link MigrationEvents}, the only class that references {@code jdk.jfr}. It is loaded on the first
+ * event, which {@link MigrationEvents} only emits when the runtime has JFR.
+ */
+final class JfrMigrationEvents {
+
+    private static final String PHASE_MESSAGE_PREFIX = "provider-api-migration-phase:";
+
+    private static final EventType PHASE_EVENT_TYPE = EventType.getEventType(MigrationPhaseEvent.class);
+
+    private JfrMigrationEvents() {
+    }
+
+    static Object beginSourceFile(ExecutionContext ctx, String phase) {
+        if (PHASE_EVENT_TYPE.isEnabled()) {
+            phase(ctx, phase).sourceFiles.incrementAndGet();
+        }
+        SourceFileEvent event = new SourceFileEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endSourceFile(Object sourceFileEvent, String phase, JavaSourceFile sourceFile) {
+        SourceFileEvent event = (SourceFileEvent) sourceFileEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.sourcePath = sourceFile.getSourcePath().toString();
+            event.language = SourceLanguage.of(sourceFile).getId();
+            event.commit();
+        }
+    }
+
+    static void phaseFinished(ExecutionContext ctx, String phase) {
+        PhaseRecording recording = ctx.pollMessage(PHASE_MESSAGE_PREFIX + phase);
+        if (recording == null) {
+            return;
+        }
+        MigrationPhaseEvent event = recording.event;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.sourceFiles = recording.sourceFiles.get();
+            event.commit();
+        }
+    }
+
+    static void setterRewritten(@Nullable JavaType receiverType, String setter, String getter) {
+        SetterRewriteEvent event = new SetterRewriteEvent();
+        if (event.isEnabled()) {
+            JavaType.FullyQualified fq = TypeUtils.asFullyQualified(receiverType);
+            event.receiverType = fq == null ? null : fq.getFullyQualifiedName();
+            event.setter = setter;
+            event.getter = getter;
+            event.commit();
+        }
+    }
+
+    private static PhaseRecording phase(ExecutionContext ctx, String phase) {
+        String key = PHASE_MESSAGE_PREFIX + phase;
+        PhaseRecording recording = ctx.getMessage(key);
+        if (recording == null) {
+            synchronized (ctx) {
+                recording = ctx.getMessage(key);
+                if (recording == null) {
+                    recording = new PhaseRecording();
+                    recording.event.begin();
+                    ctx.putMessage(key, recording);
+                }
+            }
+        }
+        return recording;
+    }
+
+    private static class PhaseRecording {
+        private final MigrationPhaseEvent event = new MigrationPhaseEvent();
+        private final AtomicInteger sourceFiles = new AtomicInteger();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes migration metrics to a Micrometer {@link MeterRegistry}, next to the metrics rewrite itself records.
+ */
+public class MicrometerMigrationMetrics implements MigrationMetrics {
+
+    private static final String PREFIX = "rewrite.provider.api.";
+
+    private final Map<Counter, io.micrometer.core.instrument.Counter> counters = new EnumMap<>(Counter.class);
+    private final Map<Timer, io.micrometer.core.instrument.Timer> timers = new EnumMap<>(Timer.class);
+
+    public MicrometerMigrationMetrics(MeterRegistry registry) {
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, registry.counter(PREFIX + counter.getMetricName()));
+        }
+        for (Timer timer : Timer.values()) {
+            timers.put(timer, registry.timer(PREFIX + timer.getMetricName()));
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void increment(Counter counter, long amount) {
+        counters.get(counter).increment(amount);
+    }
+
+    @Override
+    public void record(Timer timer, long nanos) {
+        timers.get(timer).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaSourceFile;
+import org.openrewrite.java.tree.JavaType;
+
+/**
+ * Emits the JFR events of the provider API migration. Event fields are only filled in when the event is going to be
+ * committed, so without a recording that enables them the cost is an allocation that escape analysis usually removes.
+ * Java 8 runtimes before 8u262 have no {@code jdk.jfr}: this is checked once, and every method is then a no-op.
+ */
+public final class MigrationEvents {
+
+    public static final String PHASE_COLLECT = "collect";
+    public static final String PHASE_MIGRATE = "migrate";
+    public static final String PHASE_REWRITE_INVOCATIONS = "rewrite-invocations";
+    public static final String PHASE_MIGRATE_AND_REWRITE_INVOCATIONS = "migrate-and-rewrite-invocations";
+
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private MigrationEvents() {
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, MigrationEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts timing a source file. The phase it belongs to starts with its first source file.
+     *
+     * @return the event to pass to {@link #endSourceFile}, or null without JFR.
+     */
+    public static @Nullable Object beginSourceFile(ExecutionContext ctx, String phase) {
+        return JFR_AVAILABLE ? JfrMigrationEvents.beginSourceFile(ctx, phase) : null;
+    }
+
+    public static void endSourceFile(@Nullable Object event, String phase, JavaSourceFile sourceFile) {
+        if (event != null) {
+            JfrMigrationEvents.endSourceFile(event, phase, sourceFile);
+        }
+    }
+
+    /**
+     * Ends the phase and commits its event, if any source file was visited in it while the event was enabled.
+     * Recipes call this once all source files went through the phase.
+     */
+    public static void phaseFinished(ExecutionContext ctx, String phase) {
+        if (JFR_AVAILABLE) {
+            JfrMigrationEvents.phaseFinished(ctx, phase);
+        }
+    }
+
+    public static void setterRewritten(@Nullable JavaType receiverType, String setter, String getter) {
+        if (JFR_AVAILABLE) {
+            JfrMigrationEvents.setterRewritten(receiverType, setter, getter);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import org.openrewrite.ExecutionContext;
+
+/**
+ * Sink for the counters and timers of the provider API migration. Visitors look the sink up once per
+ * source file with {@link #from(ExecutionContext)}; unless one is installed with
+ * {@link #install(ExecutionContext, MigrationMetrics)} this is {@link #NOOP}, which neither reads the clock nor counts.
+ */
+public interface MigrationMetrics {
+
+    String METRICS_MESSAGE = "provider-api-migration-metrics";
+    String RUN_FINISHED_MESSAGE = "provider-api-migration-metrics-run-finished";
+
+    MigrationMetrics NOOP = new MigrationMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void increment(Counter counter, long amount) {
+        }
+
+        @Override
+        public void record(Timer timer, long nanos) {
+        }
+    };
+
+    enum Counter {
+        FILES_TRAVERSED("files.traversed"),
+        COLLECT_FILES_VISITED("collect.files.visited"),
+        MIGRATE_FILES_VISITED("migrate.files.visited"),
+        REWRITE_FILES_VISITED("rewrite.files.visited"),
+        COLLECT_FILES_SKIPPED("collect.files.skipped"),
+        MIGRATE_FILES_SKIPPED("migrate.files.skipped"),
+        REWRITE_FILES_SKIPPED("rewrite.files.skipped"),
+        CLASSES_WITH_PROPERTIES("collect.classes"),
+        PROPERTIES_COLLECTED("collect.properties"),
+        GETTERS_MIGRATED("migrate.getters"),
+        FIELDS_MIGRATED("migrate.fields"),
+        SETTERS_REMOVED("migrate.setters.removed"),
+        CALL_SITES_REWRITTEN("rewrite.call.sites"),
+        RESOLUTION_CACHE_HITS("rewrite.resolution.cache.hits"),
+        RESOLUTION_CACHE_MISSES("rewrite.resolution.cache.misses"),
+        INDEX_HITS("index.hits"),
+        INDEX_MISSES("index.misses"),
+        DECLARATION_CACHE_HITS("cache.declarations.hits"),
+        DECLARATION_CACHE_MISSES("cache.declarations.misses"),
+        RESULT_CACHE_HITS("cache.results.hits"),
+        RESULT_CACHE_MISSES("cache.results.misses"),
+        DEDUP_DECLARATION_HITS("dedup.declarations.hits"),
+        DEDUP_DECLARATION_MISSES("dedup.declarations.misses"),
+        DEDUP_RESULT_HITS("dedup.results.hits"),
+        DEDUP_RESULT_MISSES("dedup.results.misses");
+
+        private final String metricName;
+
+        Counter(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    enum Timer {
+        VISIT_CLASS_DECLARATION("visit.class.declaration"),
+        VISIT_METHOD_DECLARATION("visit.method.declaration"),
+        VISIT_METHOD_INVOCATION("visit.method.invocation");
+
+        private final String metricName;
+
+        Timer(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    static MigrationMetrics from(ExecutionContext executionContext) {
+        return executionContext.getMessage(METRICS_MESSAGE, NOOP);
+    }
+
+    static void install(ExecutionContext executionContext, MigrationMetrics metrics) {
+        executionContext.putMessage(METRICS_MESSAGE, metrics);
+    }
+
+    boolean isEnabled();
+
+    void increment(Counter counter, long amount);
+
+    void record(Timer timer, long nanos);
+
+    default void increment(Counter counter) {
+        increment(counter, 1);
+    }
+
+    /**
+     * @return the start of a timed section, to be passed to {@link #stop(Timer, long)}.
+     */
+    default long start() {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    default void stop(Timer timer, long start) {
+        if (isEnabled()) {
+            record(timer, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reports the end of a recipe run to the sink of the context. The scheduler visits a recipe once per cycle, so
+     * only the first visit with the context reports it; later cycles rarely change anything.
+     */
+    static void recipeRunFinished(ExecutionContext executionContext) {
+        if (executionContext.getMessage(RUN_FINISHED_MESSAGE) == null) {
+            executionContext.putMessage(RUN_FINISHED_MESSAGE, true);
+            from(executionContext).runFinished();
+        }
+    }
+
+    /**
+     * Called once when a migration run has finished, by the runners like {@code StreamingProviderApiMigration} and,
+     * through {@link #recipeRunFinished(ExecutionContext)}, by {@code MigrateToProviderApiRecipe} at the end of its
+     * first cycle. The chained recipes don't call it, none of them knows it is the last one; callers that run them
+     * call it after the run.
+     */
+    default void runFinished() {
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.openrewrite.starter.SourceFile")
+@Label("Provider API Migration Source File")
+@Category({"OpenRewrite", "Provider API Migration"})
+@Description("A source file visited in a phase of the provider API migration")
+public class SourceFileEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Source Path")
+    String sourcePath;
+
+    @Label("Language")
+    String language;
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Busy time and processed source files of the stages of a pipelined migration. A stage is busy while it works on
+ * a batch, not while it waits for the previous stage or for room in the queue of the next one, so the stage with the
+ * highest busy time per thread is the bottleneck.
+ */
+public class StageTimings {
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    /**
+     * Stages are reported in the order they are added.
+     */
+    public synchronized void addStage(String name, int threads) {
+        stages.put(name, new Stage(threads));
+    }
+
+    public void record(String name, long nanos, int files) {
+        Stage stage;
+        synchronized (this) {
+            stage = stages.get(name);
+        }
+        if (stage == null) {
+            throw new IllegalArgumentException("Unknown stage " + name);
+        }
+        stage.nanos.addAndGet(nanos);
+        stage.files.addAndGet(files);
+    }
+
+    public synchronized long getNanos(String name) {
+        Stage stage = stages.get(name);
+        return stage == null ? 0 : stage.nanos.get();
+    }
+
+    public synchronized long getFiles(String name) {
+        Stage stage = stages.get(name);
+        return stage == null ? 0 : stage.files.get();
+    }
+
+    public synchronized String summary() {
+        StringBuilder summary = new StringBuilder("Pipeline stage timings:\n");
+        for (Map.Entry<String, Stage> entry : stages.entrySet()) {
+            Stage stage = entry.getValue();
+            summary.append(String.format(Locale.ROOT, "  %-32s %.1f ms busy in %d threads, %d files%n", entry.getKey(),
+                    stage.nanos.get() / 1_000_000.0, stage.threads, stage.files.get()));
+        }
+        return summary.toString();
+    }
+
+    private static class Stage {
+        private final int threads;
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong files = new AtomicLong();
+
+        private Stage(int threads) {
+            this.threads = threads;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.SourceFile
+import org.openrewrite.java.JavaParser
+import org.openrewrite.starter.gradle.MigrationEstimate
+import org.openrewrite.starter.gradle.MigrationEstimate.Change
+import org.openrewrite.starter.metrics.InMemoryMigrationMetrics
+import org.openrewrite.starter.metrics.MigrationMetrics
+
+class EstimateProviderApiMigrationRecipeTest {
+
+    private val sources: List<SourceFile> = JavaParser.fromJavaVersion()
+        .classpath("gradle-api")
+        .build()
+        .parse(InMemoryExecutionContext { t -> throw t }, """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+    private int count;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+
+    @Input
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int value) {
+        this.count = value;
+    }
+}
+        """, """
+class SubTask extends TestTask {
+    @Override
+    public void setCount(int value) {
+        super.setCount(value);
+    }
+}
+        """, """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+        """, """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+        task.setProperty("Other value");
+    }
+}
+        """)
+
+    @Test
+    fun `estimate counts what the migration changes without changing any source file`() {
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        assertThat(EstimateProviderApiMigrationRecipe().run(sources, ctx)).isEmpty()
+        val estimate = MigrationEstimate.from(ctx)
+
+        val migrationCtx = InMemoryExecutionContext { t -> throw t }
+        val metrics = InMemoryMigrationMetrics()
+        MigrationMetrics.install(migrationCtx, metrics)
+        val results = MigrateToProviderApiRecipe().run(sources, migrationCtx)
+
+        assertThat(estimate.sourceFiles.keys).containsExactlyInAnyOrderElementsOf(results.map { it.after!!.sourcePath.toString() })
+        assertThat(estimate.classes.keys).containsExactly("OtherTask", "SubTask", "TestTask")
+        assertThat(estimate.classes["TestTask"]!!.get(Change.PROPERTY)).isEqualTo(2)
+        assertThat(estimate.classes["SubTask"]!!.get(Change.SETTER)).isEqualTo(1)
+        assertThat(estimate.classes["OtherTask"]!!.get(Change.CALL_SITE)).isEqualTo(2)
+        assertThat(estimate.scannedSourceFiles).isEqualTo(4)
+
+        val total = estimate.total
+        assertThat(total.get(Change.FIELD).toLong()).isEqualTo(metrics.getCount(MigrationMetrics.Counter.FIELDS_MIGRATED))
+        assertThat(total.get(Change.GETTER).toLong()).isEqualTo(metrics.getCount(MigrationMetrics.Counter.GETTERS_MIGRATED))
+        assertThat(total.get(Change.SETTER).toLong()).isEqualTo(metrics.getCount(MigrationMetrics.Counter.SETTERS_REMOVED))
+        assertThat(total.get(Change.CALL_SITE).toLong()).isEqualTo(metrics.getCount(MigrationMetrics.Counter.CALL_SITES_REWRITTEN))
+    }
+
+    @Test
+    fun `setter invocations with arguments of unsupported types are not counted`() {
+        val plugin = JavaParser.fromJavaVersion()
+            .classpath("gradle-api")
+            .build()
+            .parse(InMemoryExecutionContext { t -> throw t }, """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+        """, """
+class TestPlugin {
+    public <T> void apply(T value) {
+        OtherTask task = new OtherTask();
+        task.setProperty(null);
+        task.setProperty(new String[0]);
+        task.setProperty(value);
+    }
+}
+        """)
+
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        assertThat(EstimateProviderApiMigrationRecipe().run(plugin, ctx)).isEmpty()
+        assertThat(MigrationEstimate.from(ctx).total.get(Change.CALL_SITE)).isEqualTo(0)
+        assertThat(MigrateToProviderApiRecipe().run(plugin, InMemoryExecutionContext { t -> throw t })).isEmpty()
+    }
+}
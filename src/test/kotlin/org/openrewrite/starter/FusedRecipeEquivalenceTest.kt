@@ -0,0 +1,260 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.Recipe
+import org.openrewrite.SourceFile
+import org.openrewrite.groovy.GroovyParser
+import org.openrewrite.java.JavaParser
+import org.openrewrite.starter.metrics.InMemoryMigrationMetrics
+import org.openrewrite.starter.metrics.MigrationMetrics
+
+/**
+ * The fused [MigrateToProviderApiRecipe] must change the same source files in the same way as the three
+ * standalone recipes chained with `doNext`, over the sources of [MigrateToProviderApiToRecipeTest] and
+ * [GroovyMigrateToProviderApiToRecipeTest].
+ */
+class FusedRecipeEquivalenceTest {
+
+    @Test
+    fun `fused recipe changes java sources like the chained recipes`() {
+        for (fixture in javaFixtures) {
+            assertEquivalent(JavaParser.fromJavaVersion().classpath("gradle-api").build()
+                .parse(InMemoryExecutionContext { t -> throw t }, *fixture))
+        }
+    }
+
+    @Test
+    fun `fused recipe changes groovy sources like the chained recipes`() {
+        for (fixture in groovyFixtures) {
+            assertEquivalent(GroovyParser.builder().classpath("gradle-api").build()
+                .parse(InMemoryExecutionContext { t -> throw t }, *fixture))
+        }
+    }
+
+    @Test
+    fun `fused recipe traverses source files fewer times than the chained recipes`() {
+        // Groovy source files are never skipped by the prefilters, so every recipe traverses every one of them
+        val sources = GroovyParser.builder().classpath("gradle-api").build()
+            .parse(InMemoryExecutionContext { t -> throw t }, *groovyFixtures[1])
+
+        assertThat(traversals(MigrateToProviderApiRecipe(), sources)).isLessThan(traversals(chain(), sources))
+    }
+
+    private fun traversals(recipe: Recipe, sources: List<SourceFile>): Long {
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        val metrics = InMemoryMigrationMetrics()
+        MigrationMetrics.install(ctx, metrics)
+        recipe.run(sources, ctx)
+        return metrics.getCount(MigrationMetrics.Counter.FILES_TRAVERSED)
+    }
+
+    private fun assertEquivalent(sources: List<SourceFile>) {
+        val fused = run(MigrateToProviderApiRecipe(), sources)
+        assertThat(fused).isNotEmpty
+        assertThat(fused).isEqualTo(run(chain(), sources))
+    }
+
+    private fun run(recipe: Recipe, sources: List<SourceFile>) = recipe.run(sources, InMemoryExecutionContext { t -> throw t })
+        .associate { it.before!!.sourcePath to it.after!!.printAll() }
+
+    private fun chain(): Recipe {
+        val chain = object : Recipe() {
+            override fun getDisplayName() = "Migrate Gradle task to the Provider API with chained recipes"
+        }
+        chain.doNext(CollectTaskPlainPropertiesRecipe())
+        chain.doNext(MigrateTaskPropertiesToProviderApiRecipe())
+        chain.doNext(MigratePropertySetInvocationsRecipe())
+        return chain
+    }
+
+    private val javaFixtures = listOf(
+        arrayOf("""
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private final Property<String> property = null;
+
+    @Input
+    public Property<String> getProperty() {
+        return property;
+    }
+}
+        """, """
+class TestPlugin {
+    public void apply() {
+        TestTask task = new TestTask();
+        task.setProperty("Demo value");
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+
+class TestTask extends BaseTask {
+    private String other;
+
+    @Override
+    public String getProperty() {
+        return super.getProperty();
+    }
+
+    @Override
+    public void setProperty(String value) {
+        super.setProperty(value);
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    @Input
+    public abstract Property<String> getProperty();
+}
+        """, """
+import org.gradle.api.provider.Property;
+
+interface HasCount {
+    Property<Integer> getCount();
+}
+        """, """
+abstract class TestTask extends BaseTask implements HasCount {
+}
+        """, """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setProperty("Demo value");
+        task.setCount(1);
+    }
+}
+        """)
+    )
+
+    private val testTaskDeclaration = """
+        class TestTask {
+            private final Property<String> property = null
+
+            @Input
+            Property<String> getProperty() {
+                return property
+            }
+        }
+    """
+
+    private val groovyFixtures = listOf(
+        arrayOf("""
+import org.gradle.api.tasks.Input
+
+class TestTask {
+    private String property
+
+    @Input
+    String getProperty() {
+        return property
+    }
+
+    void setProperty(String value) {
+        this.property = value
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+
+$testTaskDeclaration
+
+class TestPlugin {
+    void apply() {
+        TestTask task = new TestTask()
+        task.setProperty("Demo value")
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.Plugin
+import org.gradle.api.Project
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.Action
+
+$testTaskDeclaration
+
+class TestPlugin implements Plugin<Project> {
+    void apply(Project project) {
+        project.tasks.register("testTask", TestTask) {
+            it.setProperty("Demo value")
+        }
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+import org.gradle.api.Action
+
+$testTaskDeclaration
+
+class TestPlugin {
+
+    def <T extends TestTask> T register(String name, Class<T> type, Closure configurationAction) {
+        return null
+    }
+
+    void apply() {
+        register("testTask", TestTask) {
+            it.setProperty("Demo value")
+        }
+    }
+}
+        """)
+    )
+}
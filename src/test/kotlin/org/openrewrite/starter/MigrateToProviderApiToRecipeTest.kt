@@ -94,6 +94,223 @@ class TestPlugin {
         TestTask task = new TestTask();
         task.getProperty().set("Demo value");
     }
+}
+        """
+    )
+
+    @Test
+    fun `migrate getters and setters overriding those of a migrated superclass`() = assertChanged(
+        before = """
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+
+class TestTask extends BaseTask {
+    private String other;
+
+    @Override
+    public String getProperty() {
+        return super.getProperty();
+    }
+
+    @Override
+    public void setProperty(String value) {
+        super.setProperty(value);
+    }
+}
+        """,
+        after = """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    private final Property<String> property;
+
+    @Input
+    public Property<String> getProperty() {
+        return property;
+    }
+}
+
+class TestTask extends BaseTask {
+    private String other;
+
+    @Override
+    public Property<String> getProperty() {
+        return super.getProperty();
+    }
+}
+        """
+    )
+
+    @Test
+    fun `replace setters of Property getters inherited from a base task and an interface`() = assertChanged(
+        dependsOn = arrayOf(
+            """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    @Input
+    public abstract Property<String> getProperty();
+}
+    """,
+            """
+import org.gradle.api.provider.Property;
+
+interface HasCount {
+    Property<Integer> getCount();
+}
+    """,
+            """
+abstract class TestTask extends BaseTask implements HasCount {
+}
+    """
+        ),
+        before = """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setProperty("Demo value");
+        task.setCount(1);
+    }
+}
+        """,
+        after = """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.getProperty().set("Demo value");
+        task.getCount().set(1);
+    }
+}
+        """
+    )
+
+    @Test
+    fun `replace input of a getter whose property name starts with is`() = assertChanged(
+        before = """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private Boolean isolated;
+
+    @Input
+    public Boolean getIsolated() {
+        return isolated;
+    }
+
+    public void setIsolated(Boolean value) {
+        this.isolated = value;
+    }
+}
+        """,
+        after = """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private final Property<Boolean> isolated;
+
+    @Input
+    public Property<Boolean> getIsolated() {
+        return isolated;
+    }
+}
+        """
+    )
+
+    @Test
+    fun `replace input of a boolean getter starting with is`() = assertChanged(
+        before = """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private boolean enabled;
+
+    @Input
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean value) {
+        this.enabled = value;
+    }
+}
+        """,
+        after = """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private final Property<Boolean> enabled;
+
+    @Input
+    public Property<Boolean> isEnabled() {
+        return enabled;
+    }
+}
+        """
+    )
+
+    @Test
+    fun `keep methods whose names only start like accessors`() = assertChanged(
+        before = """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+    private String settings;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+
+    @Input
+    public String settings() {
+        return settings;
+    }
+
+    public void settings(String value) {
+        this.settings = value;
+    }
+}
+        """,
+        after = """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private final Property<String> property;
+    private String settings;
+
+    @Input
+    public Property<String> getProperty() {
+        return property;
+    }
+
+    @Input
+    public String settings() {
+        return settings;
+    }
+
+    public void settings(String value) {
+        this.settings = value;
+    }
 }
         """
     )
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.Recipe
+import org.openrewrite.SourceFile
+import org.openrewrite.groovy.GroovyParser
+import org.openrewrite.java.JavaParser
+
+class MixedLanguageMigrateToProviderApiTest {
+
+    private val ctx = InMemoryExecutionContext { t -> throw t }
+
+    private val sources: List<SourceFile> = JavaParser.fromJavaVersion()
+        .classpath("gradle-api")
+        .build()
+        .parse(ctx, """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private final Property<String> property = null;
+
+    @Input
+    public Property<String> getProperty() {
+        return property;
+    }
+}
+
+class JavaPlugin {
+    public void apply() {
+        TestTask task = new TestTask();
+        task.setProperty("Demo value");
+    }
+}
+        """) + GroovyParser.builder()
+        .classpath("gradle-api")
+        .build()
+        .parse(ctx, """
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+
+class TestTask {
+    private final Property<String> property = null
+
+    @Input
+    Property<String> getProperty() {
+        return property
+    }
+}
+
+class GroovyPlugin {
+    void apply() {
+        TestTask task = new TestTask()
+        task.setProperty("Demo value")
+    }
+}
+        """)
+
+    @Test
+    fun `migration rewrites call sites in the style of each source file's language`() {
+        assertLanguageSpecificCallSites(MigrateToProviderApiRecipe())
+        assertLanguageSpecificCallSites(MigrateToProviderApiRecipe(2))
+    }
+
+    @Test
+    fun `setter invocation rewrite uses the style of each source file's language`() {
+        assertLanguageSpecificCallSites(MigratePropertySetInvocationsRecipe())
+        assertLanguageSpecificCallSites(MigratePropertySetInvocationsRecipe(2))
+    }
+
+    private fun assertLanguageSpecificCallSites(recipe: Recipe) {
+        // Both files call the same setter on a task type of the same name, so they share a cached resolution
+        val after = recipe.run(sources, InMemoryExecutionContext { t -> throw t }).map { it.after!!.printAll() }
+
+        assertThat(after).hasSize(2)
+        assertThat(after[0]).contains("task.getProperty().set(\"Demo value\");")
+        assertThat(after[1]).contains("task.property.set(\"Demo value\")")
+    }
+}
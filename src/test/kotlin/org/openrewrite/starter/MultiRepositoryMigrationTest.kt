@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaParser
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.stream.Collectors
+
+class MultiRepositoryMigrationTest {
+
+    @TempDir
+    lateinit var tempDir: Path
+
+    @Test
+    fun `every repository is migrated like the in-memory recipe run and failures are reported per repository`() {
+        val first = repository("first", "Demo value")
+        val second = repository("second", "Other value")
+        val missing = tempDir.resolve("missing")
+        val expected = listOf(first, second).associateWith { inMemory(it) }
+
+        val migration = MultiRepositoryMigration(JavaParser.dependenciesFromClasspath("gradle-api"), 2, 10)
+        migration.setIndexDir(tempDir.resolve("index"))
+        val changes = ConcurrentHashMap<Path, MutableMap<Path, String>>()
+        val reports = migration.run(listOf(first, second, missing)) { repository, change ->
+            changes.computeIfAbsent(repository) { ConcurrentHashMap() }[change.sourcePath] = change.after
+        }
+
+        assertThat(reports.map { it.repository }).containsExactly(first, second, missing)
+        assertThat(reports.map { it.changedFiles }).containsExactly(2, 2, 0)
+        assertThat(reports.map { it.isFailed }).containsExactly(false, false, true)
+        assertThat(changes).isEqualTo(expected)
+        assertThat(tempDir.resolve("index").toFile().list()).hasSize(2)
+    }
+
+    @Test
+    fun `repositories declaring the same task class differently are migrated independently`() {
+        val first = Files.createDirectories(tempDir.resolve("first"))
+        write(first, "TestTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class TestTask {
+    @Input
+    public abstract Property<String> getProperty();
+
+    public void setCount(int count) {
+    }
+}
+        """)
+        val second = Files.createDirectories(tempDir.resolve("second"))
+        write(second, "TestTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class TestTask {
+    @Input
+    public abstract Property<Integer> getCount();
+
+    public void setProperty(String property) {
+    }
+}
+        """)
+        for (repository in listOf(first, second)) {
+            write(repository, "TestPlugin.java", """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setProperty("Demo value");
+        task.setCount(1);
+    }
+}
+            """)
+        }
+        val repositories = listOf(first, second).map { it.toAbsolutePath().normalize() }
+        val expected = repositories.associateWith { inMemory(it) }
+        assertThat(expected[repositories[0]]!!.values.single()).contains("task.getProperty().set(\"Demo value\");", "task.setCount(1);")
+        assertThat(expected[repositories[1]]!!.values.single()).contains("task.setProperty(\"Demo value\");", "task.getCount().set(1);")
+
+        // One thread migrates both repositories one after the other, with one source file per batch and with all at once
+        for (batchSize in listOf(1, 10)) {
+            val changes = ConcurrentHashMap<Path, MutableMap<Path, String>>()
+            MultiRepositoryMigration(JavaParser.dependenciesFromClasspath("gradle-api"), 1, batchSize)
+                .run(repositories) { repository, change ->
+                    changes.computeIfAbsent(repository) { ConcurrentHashMap() }[change.sourcePath] = change.after
+                }
+            assertThat(changes).isEqualTo(expected)
+        }
+    }
+
+    private fun inMemory(repository: Path): Map<Path, String> {
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        val paths = Files.list(repository).use { files -> files.sorted().collect(Collectors.toList()) }
+        return MigrateToProviderApiRecipe()
+            .run(JavaParser.fromJavaVersion().classpath("gradle-api").build().parse(paths, repository, ctx), ctx)
+            .associate { it.after!!.sourcePath to it.after!!.printAll() }
+    }
+
+    private fun repository(name: String, value: String): Path {
+        val repository = Files.createDirectories(tempDir.resolve(name))
+        write(repository, "TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+        """)
+        write(repository, "OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+        """)
+        write(repository, "TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("$value");
+    }
+}
+        """)
+        return repository.toAbsolutePath().normalize()
+    }
+
+    private fun write(repository: Path, fileName: String, source: String) {
+        Files.write(repository.resolve(fileName), source.trimIndent().toByteArray())
+    }
+}
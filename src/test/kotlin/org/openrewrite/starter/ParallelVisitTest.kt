@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.Recipe
+import org.openrewrite.SourceFile
+import org.openrewrite.java.JavaParser
+import java.util.function.UnaryOperator
+
+/**
+ * Visiting source files on 4 threads must give the same result as visiting them serially, over the sources of
+ * [MigrateToProviderApiToRecipeTest] and [UnchangedSourceIdentityTest].
+ */
+class ParallelVisitTest {
+
+    @Test
+    fun `parallel visits keep the output, the order and the identity of unchanged source files`() {
+        for (fixture in fixtures) {
+            val sources = parse(*fixture)
+            val ctx = InMemoryExecutionContext { t -> throw t }
+            val visit = UnaryOperator<SourceFile> { SourceFileVisits.visit(MigratePropertySetInvocationsVisitor(), it, ctx) }
+
+            val serial = SourceFileVisits.map(sources, null, visit)
+            val parallel = SourceFileVisits.map(sources, 4, visit)
+
+            assertThat(parallel.map { it.sourcePath }).containsExactlyElementsOf(sources.map { it.sourcePath })
+            assertThat(parallel.map { it.printAll() }).containsExactlyElementsOf(serial.map { it.printAll() })
+            val unchanged = sources.indices.filter { serial[it] === sources[it] }
+            assertThat(unchanged).isNotEmpty
+            assertThat(unchanged).allMatch { parallel[it] === sources[it] }
+            assertThat(serial).isNotSameAs(sources)
+        }
+    }
+
+    @Test
+    fun `parallel visits return the same list when no source file changes`() {
+        val sources = parse(unrelated, taskWithPropertyGetter)
+        val ctx = InMemoryExecutionContext { t -> throw t }
+
+        assertThat(SourceFileVisits.map(sources, 4) { SourceFileVisits.visit(MigratePropertySetInvocationsVisitor(), it, ctx) })
+            .isSameAs(sources)
+        assertThat(SourceFileVisits.map(sources, null) { SourceFileVisits.visit(MigratePropertySetInvocationsVisitor(), it, ctx) })
+            .isSameAs(sources)
+    }
+
+    @Test
+    fun `recipes with parallelism change the same source files in the same order as serial runs`() {
+        for (fixture in fixtures) {
+            val sources = parse(*fixture)
+            assertThat(run(MigratePropertySetInvocationsRecipe(4), sources)).isEqualTo(run(MigratePropertySetInvocationsRecipe(), sources))
+            assertThat(run(MigrateToProviderApiRecipe(4), sources)).isEqualTo(run(MigrateToProviderApiRecipe(), sources))
+        }
+    }
+
+    private fun run(recipe: Recipe, sources: List<SourceFile>) = recipe.run(sources, InMemoryExecutionContext { t -> throw t })
+        .map { it.before!!.sourcePath to it.after!!.printAll() }
+
+    private fun parse(vararg sources: String): List<SourceFile> = JavaParser.fromJavaVersion()
+        .classpath("gradle-api")
+        .build()
+        .parse(InMemoryExecutionContext { t -> throw t }, *sources)
+
+    private val taskWithPropertyGetter = """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private final Property<String> property = null;
+
+    @Input
+    public Property<String> getProperty() {
+        return property;
+    }
+}
+    """
+
+    private val unrelated = """
+class Unrelated {
+    private String settings;
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public void reset() {
+        setSettings("default");
+    }
+}
+    """
+
+    private val fixtures = listOf(
+        arrayOf(taskWithPropertyGetter, unrelated, """
+class TestPlugin {
+    public void apply() {
+        TestTask task = new TestTask();
+        task.setProperty("Demo value");
+    }
+}
+        """),
+        arrayOf("""
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    @Input
+    public abstract Property<String> getProperty();
+}
+        """, """
+import org.gradle.api.provider.Property;
+
+interface HasCount {
+    Property<Integer> getCount();
+}
+        """, """
+abstract class TestTask extends BaseTask implements HasCount {
+}
+        """, unrelated, """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setProperty("Demo value");
+        task.setCount(1);
+    }
+}
+        """, """
+class OtherPlugin {
+    public void apply(TestTask task) {
+        task.setCount(2);
+    }
+}
+        """)
+    )
+}
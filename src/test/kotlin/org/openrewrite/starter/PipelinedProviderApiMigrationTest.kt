@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.Parser
+import org.openrewrite.java.JavaParser
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.ConcurrentHashMap
+import java.util.function.Supplier
+
+class PipelinedProviderApiMigrationTest {
+
+    @TempDir
+    lateinit var projectDir: Path
+
+    @Test
+    fun `pipelined stages produce the same output as the in-memory recipe run`() {
+        val paths = listOf(
+            write("TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """),
+            write("OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+            """),
+            write("TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+    }
+}
+            """)
+        )
+        val inMemory = MigrateToProviderApiRecipe()
+            .run(javaParser().parse(paths, projectDir, ctx()), ctx())
+            .associate { it.after!!.sourcePath to it.after!!.printAll() }
+        assertThat(inMemory).hasSize(2)
+
+        // A batch size of 1 parses the plugin without OtherTask in its batch
+        for ((threads, batchSize) in listOf(1 to paths.size, 2 to paths.size, 2 to 1)) {
+            val changes = ConcurrentHashMap<Path, String>()
+            val migration = PipelinedProviderApiMigration(
+                MigrateToProviderApiRecipe(),
+                listOf<Supplier<out Parser<*>>>(Supplier { javaParser() }),
+                batchSize,
+                projectDir
+            )
+            migration.setParseThreads(threads)
+            migration.setVisitThreads(threads)
+            migration.setWriteThreads(threads)
+            val changed = migration.run(paths, ctx()) { changes[it.sourcePath] = it.after }
+
+            assertThat(changed).isEqualTo(inMemory.size)
+            assertThat(changes).isEqualTo(inMemory)
+            assertThat(migration.stageTimings.getFiles("migrate.${PipelinedProviderApiMigration.PARSE}")).isEqualTo(3)
+        }
+    }
+
+    private fun javaParser() = JavaParser.fromJavaVersion().classpath("gradle-api").build()
+
+    private fun ctx() = InMemoryExecutionContext { t -> throw t }
+
+    private fun write(fileName: String, source: String): Path =
+        Files.write(projectDir.resolve(fileName), source.trimIndent().toByteArray())
+}
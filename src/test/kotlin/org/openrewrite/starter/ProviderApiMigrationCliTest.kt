@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.java.JavaParser
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ProviderApiMigrationCliTest {
+
+    @TempDir
+    lateinit var projectDir: Path
+
+    private val plainTask = """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+    """
+
+    @Test
+    fun `only build directories of the project and its subprojects are skipped`() {
+        write("build.gradle", "")
+        write("sub/build.gradle", "")
+        val inPackage = write("src/main/java/com/acme/build/TestTask.java", "package com.acme.build;\n$plainTask")
+        val projectOutput = write("build/generated/TestTask.java", plainTask)
+        val subprojectOutput = write("sub/build/generated/TestTask.java", plainTask)
+
+        assertThat(ProviderApiMigrationCli.sourceFiles(projectDir))
+            .contains(inPackage, projectDir.resolve("build.gradle"), projectDir.resolve("sub/build.gradle"))
+            .doesNotContain(projectOutput, subprojectOutput)
+    }
+
+    @Test
+    fun `call sites in Gradle build scripts are migrated`() {
+        write("TestTask.groovy", """
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+
+class TestTask {
+    private final Property<String> property = null
+
+    @Input
+    Property<String> getProperty() {
+        return property
+    }
+}
+        """)
+        val buildScript = write("build.gradle", """
+TestTask task = new TestTask()
+task.setProperty("Demo value")
+        """)
+
+        val status = ProviderApiMigrationCli.run(arrayOf(
+            "--in-place",
+            "--classpath", JavaParser.dependenciesFromClasspath("gradle-api").joinToString(File.pathSeparator),
+            projectDir.toString()
+        ))
+
+        assertThat(status).isEqualTo(0)
+        assertThat(String(Files.readAllBytes(buildScript))).contains("task.property.set(\"Demo value\")")
+    }
+
+    private fun write(fileName: String, source: String): Path {
+        val path = projectDir.resolve(fileName)
+        Files.createDirectories(path.parent)
+        return Files.write(path, source.trimIndent().toByteArray())
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaParser
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.PosixFilePermissions
+import kotlin.concurrent.thread
+
+class ProviderApiMigrationDaemonTest {
+
+    @TempDir
+    lateinit var projectDir: Path
+
+    @TempDir
+    lateinit var cacheDir: Path
+
+    @Test
+    fun `warm requests produce the same output as the in-memory recipe run`() {
+        val paths = listOf(
+            write("TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """),
+            write("OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+            """),
+            write("TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+    }
+}
+            """)
+        )
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        val inMemory = MigrateToProviderApiRecipe()
+            .run(JavaParser.fromJavaVersion().classpath("gradle-api").build().parse(paths, projectDir, ctx), ctx)
+            .associate { it.after!!.sourcePath to it.after!!.printAll() }
+        assertThat(inMemory).hasSize(2)
+
+        val daemon = ProviderApiMigrationDaemon(0, 60, ProviderApiMigrationDaemon.DEFAULT_MAX_HEAP_FRACTION, cacheDir)
+        val server = thread { daemon.serve() }
+        try {
+            val classpath = JavaParser.dependenciesFromClasspath("gradle-api")
+            // Cold, warm, then warm reusing the results of the previous request
+            for (reuseResults in listOf(false, false, true, true)) {
+                val changes = HashMap<Path, String>()
+                val response = ProviderApiMigrationDaemon.migrate(daemon.endpoint, projectDir, classpath, 10, reuseResults) {
+                    changes[it.sourcePath] = it.after
+                }
+                assertThat(response.changedFiles).isEqualTo(inMemory.size)
+                assertThat(response.failures).isEqualTo(0)
+                assertThat(changes).isEqualTo(inMemory)
+            }
+        } finally {
+            ProviderApiMigrationDaemon.stop(daemon.endpoint)
+            server.join()
+        }
+        assertThat(cacheDir.toFile().list { _, name -> name.endsWith(".cache") }).hasSize(1)
+    }
+
+    @Test
+    fun `results are not reused for a request with another classpath`() {
+        val paths = listOf(
+            write("TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """)
+        )
+        val gradleApi = JavaParser.dependenciesFromClasspath("gradle-api")
+        val daemon = ProviderApiMigrationDaemon(0, 60, ProviderApiMigrationDaemon.DEFAULT_MAX_HEAP_FRACTION, cacheDir)
+        val server = thread { daemon.serve() }
+        try {
+            // Without the Gradle API the @Input annotation is not attributed and nothing changes
+            for (classpath in listOf(gradleApi, emptyList(), gradleApi, emptyList())) {
+                val ctx = InMemoryExecutionContext { t -> throw t }
+                val inMemory = MigrateToProviderApiRecipe()
+                    .run(JavaParser.fromJavaVersion().classpath(classpath).build().parse(paths, projectDir, ctx), ctx)
+                    .associate { it.after!!.sourcePath to it.after!!.printAll() }
+                val changes = HashMap<Path, String>()
+                ProviderApiMigrationDaemon.migrate(daemon.endpoint, projectDir, classpath, 10, true) {
+                    changes[it.sourcePath] = it.after
+                }
+                assertThat(changes).isEqualTo(inMemory)
+            }
+        } finally {
+            ProviderApiMigrationDaemon.stop(daemon.endpoint)
+            server.join()
+        }
+        assertThat(cacheDir.toFile().list { _, name -> name.endsWith(".cache") }).hasSize(2)
+    }
+
+    @Test
+    fun `warm parsers migrate source files changed since the previous request`() {
+        val taskSource = { property: String ->
+            """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String $property;
+
+    @Input
+    public String get${property.capitalize()}() {
+        return $property;
+    }
+
+    public void set${property.capitalize()}(String value) {
+        this.$property = value;
+    }
+}
+            """
+        }
+        val plugin = write("TestPlugin.java", """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setFirst("Demo value");
+        task.setSecond("Demo value");
+    }
+}
+        """)
+        val classpath = JavaParser.dependenciesFromClasspath("gradle-api")
+        val daemon = ProviderApiMigrationDaemon(0, 60, ProviderApiMigrationDaemon.DEFAULT_MAX_HEAP_FRACTION, cacheDir)
+        val server = thread { daemon.serve() }
+        try {
+            // The same parsers compile both versions of the task class, with and without reused results
+            for ((property, reuseResults) in listOf("first" to false, "second" to false, "first" to true, "second" to true)) {
+                val task = write("TestTask.java", taskSource(property))
+                val ctx = InMemoryExecutionContext { t -> throw t }
+                val inMemory = MigrateToProviderApiRecipe()
+                    .run(JavaParser.fromJavaVersion().classpath(classpath).build().parse(listOf(task, plugin), projectDir, ctx), ctx)
+                    .associate { it.after!!.sourcePath to it.after!!.printAll() }
+                assertThat(inMemory.getValue(projectDir.relativize(plugin))).contains("task.get${property.capitalize()}().set(\"Demo value\");")
+                val changes = HashMap<Path, String>()
+                ProviderApiMigrationDaemon.migrate(daemon.endpoint, projectDir, classpath, 10, reuseResults) {
+                    changes[it.sourcePath] = it.after
+                }
+                assertThat(changes).isEqualTo(inMemory)
+            }
+        } finally {
+            ProviderApiMigrationDaemon.stop(daemon.endpoint)
+            server.join()
+        }
+        assertThat(cacheDir.resolve("index").toFile().list()).hasSize(1)
+    }
+
+    @Test
+    fun `requests without the token of the port file are rejected`() {
+        val daemon = ProviderApiMigrationDaemon(0, 60, ProviderApiMigrationDaemon.DEFAULT_MAX_HEAP_FRACTION, cacheDir)
+        val portFile = cacheDir.resolve("daemon.port")
+        daemon.writePortFile(portFile)
+        assertThat(ProviderApiMigrationDaemon.Endpoint.read(portFile)).isEqualTo(daemon.endpoint)
+        if (Files.getFileStore(portFile).supportsFileAttributeView("posix")) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(portFile))).isEqualTo("rw-------")
+        }
+
+        val server = thread { daemon.serve() }
+        try {
+            val wrongToken = ProviderApiMigrationDaemon.Endpoint(daemon.port, "not the token")
+            assertThatThrownBy {
+                ProviderApiMigrationDaemon.migrate(wrongToken, projectDir, emptyList(), 10, false) { }
+            }.isInstanceOf(IOException::class.java)
+            ProviderApiMigrationDaemon.stop(wrongToken)
+            assertThat(server.isAlive).isTrue
+
+            assertThat(ProviderApiMigrationDaemon.migrate(daemon.endpoint, projectDir, emptyList(), 10, false) { }.changedFiles).isEqualTo(0)
+        } finally {
+            ProviderApiMigrationDaemon.stop(daemon.endpoint)
+            server.join()
+        }
+    }
+
+    private fun write(fileName: String, source: String): Path =
+        Files.write(projectDir.resolve(fileName), source.trimIndent().toByteArray())
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.java.JavaParser
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ShardedProviderApiMigrationTest {
+
+    @TempDir
+    lateinit var projectDir: Path
+
+    @Test
+    fun `workers migrate their shards with the properties collected by all shards`() {
+        val paths = listOf(
+            write("TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """),
+            write("Unrelated.java", """
+class Unrelated {
+    private String settings;
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+}
+            """)
+        )
+
+        val changes = mutableMapOf<Path, String>()
+        val changed = ShardedProviderApiMigration(
+            2,
+            JavaParser.dependenciesFromClasspath("gradle-api"),
+            10,
+            projectDir,
+            projectDir.resolve("work")
+        ).run(paths) { changes[it.sourcePath] = it.after }
+
+        assertThat(changed).isEqualTo(1)
+        assertThat(changes).containsOnlyKeys(Path.of("TestTask.java"))
+        assertThat(changes[Path.of("TestTask.java")]).contains("private final Property<String> property;")
+    }
+
+    @Test
+    fun `call sites on task classes of other shards are rewritten`() {
+        val paths = listOf(
+            write("OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+            """),
+            write("TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+    }
+}
+            """)
+        )
+
+        val changes = mutableMapOf<Path, String>()
+        ShardedProviderApiMigration(
+            2,
+            JavaParser.dependenciesFromClasspath("gradle-api"),
+            10,
+            projectDir,
+            projectDir.resolve("work")
+        ).run(paths) { changes[it.sourcePath] = it.after }
+
+        assertThat(changes).containsOnlyKeys(Path.of("TestPlugin.java"))
+        assertThat(changes[Path.of("TestPlugin.java")]).contains("task.getProperty().set(\"Demo value\");")
+    }
+
+    @Test
+    fun `workers migrate call sites in Gradle build scripts`() {
+        val paths = listOf(
+            write("TestTask.groovy", """
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+
+class TestTask {
+    private final Property<String> property = null
+
+    @Input
+    Property<String> getProperty() {
+        return property
+    }
+}
+            """),
+            write("build.gradle", """
+TestTask task = new TestTask()
+task.setProperty("Demo value")
+            """)
+        )
+
+        val changes = mutableMapOf<Path, String>()
+        ShardedProviderApiMigration(
+            2,
+            JavaParser.dependenciesFromClasspath("gradle-api"),
+            10,
+            projectDir,
+            projectDir.resolve("work")
+        ).run(paths) { changes[it.sourcePath] = it.after }
+
+        assertThat(changes).containsOnlyKeys(Path.of("build.gradle"))
+        assertThat(changes[Path.of("build.gradle")]).contains("task.property.set(\"Demo value\")")
+    }
+
+    private fun write(fileName: String, source: String): Path =
+        Files.write(projectDir.resolve(fileName), source.trimIndent().toByteArray())
+}
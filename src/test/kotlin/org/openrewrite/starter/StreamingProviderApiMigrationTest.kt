@@ -0,0 +1,324 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.Parser
+import org.openrewrite.groovy.GroovyParser
+import org.openrewrite.java.JavaParser
+import org.openrewrite.starter.gradle.ContentAddressedMemo
+import org.openrewrite.starter.gradle.MigrationResultCache
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Supplier
+
+class StreamingProviderApiMigrationTest {
+
+    @TempDir
+    lateinit var projectDir: Path
+
+    @Test
+    fun `streaming in batches produces the same output as the in-memory recipe run`() {
+        val paths = listOf(
+            write("TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """),
+            write("Unrelated.java", """
+class Unrelated {
+    private String settings;
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+}
+            """),
+            write("OtherTask.groovy", """
+import org.gradle.api.provider.Property
+import org.gradle.api.tasks.Input
+
+class OtherTask {
+    private final Property<String> property = null
+
+    @Input
+    Property<String> getProperty() {
+        return property
+    }
+}
+
+class TestPlugin {
+    void apply() {
+        OtherTask task = new OtherTask()
+        task.setProperty("Demo value")
+    }
+}
+            """)
+        )
+        val javaParser = javaParser()
+        val groovyParser = groovyParser()
+        val inMemory = MigrateToProviderApiRecipe()
+            .run(
+                javaParser.parse(paths.filter { javaParser.accept(it) }, projectDir, ctx()) +
+                        groovyParser.parse(paths.filter { groovyParser.accept(it) }, projectDir, ctx()),
+                ctx()
+            )
+            .associate { it.after!!.sourcePath to it.after!!.printAll() }
+        assertThat(inMemory).hasSize(2)
+
+        for (batchSize in 1..paths.size) {
+            val streamed = mutableMapOf<Path, String>()
+            val changed = StreamingProviderApiMigration(
+                MigrateToProviderApiRecipe(),
+                listOf<Supplier<out Parser<*>>>(Supplier { javaParser() }, Supplier { groovyParser() }),
+                batchSize,
+                2,
+                projectDir
+            ).run(paths, ctx()) { streamed[it.sourcePath] = it.after }
+
+            assertThat(changed).isEqualTo(inMemory.size)
+            assertThat(streamed).isEqualTo(inMemory)
+        }
+    }
+
+    @Test
+    fun `call sites on task classes of other batches are rewritten like in the in-memory recipe run`() {
+        val paths = listOf(
+            write("TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+        SubTask subTask = new SubTask();
+        subTask.setMessage(new Message());
+    }
+}
+            """),
+            write("OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+            """),
+            write("SubTask.java", """
+class SubTask extends BaseTask {
+}
+            """),
+            write("BaseTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    @Input
+    public Property<Message> getMessage() {
+        return null;
+    }
+}
+            """),
+            write("Message.java", """
+class Message {
+}
+            """)
+        )
+        val inMemory = MigrateToProviderApiRecipe()
+            .run(javaParser().parse(paths, projectDir, ctx()), ctx())
+            .associate { it.after!!.sourcePath to it.after!!.printAll() }
+        assertThat(inMemory).containsOnlyKeys(Path.of("TestPlugin.java"))
+        assertThat(inMemory[Path.of("TestPlugin.java")])
+            .contains("task.getProperty().set(\"Demo value\");")
+            .contains("subTask.getMessage().set(new Message());")
+
+        val streamed = mutableMapOf<Path, String>()
+        StreamingProviderApiMigration(
+            MigrateToProviderApiRecipe(),
+            listOf<Supplier<out Parser<*>>>(Supplier { javaParser() }),
+            1,
+            projectDir
+        ).run(paths, ctx()) { streamed[it.sourcePath] = it.after }
+
+        assertThat(streamed).isEqualTo(inMemory)
+    }
+
+    @Test
+    fun `cached results are reused until a dependency changes its Property getters`() {
+        val task = write("OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+        """)
+        val plugin = write("TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+    }
+}
+        """)
+        val cacheFile = projectDir.resolve("migration-cache.bin")
+
+        val migrated = runCached(cacheFile, listOf(task, plugin))
+        assertThat(migrated).containsOnlyKeys(Path.of("TestPlugin.java"))
+
+        // The migrated source is decoded from the cache file on the hit
+        val cache = MigrationResultCache.load(cacheFile, "test")
+        assertThat(runCached(cache, listOf(task, plugin))).isEqualTo(migrated)
+        assertThat(cache.resultHitRate).isEqualTo(1.0)
+
+        // The plugin is unchanged, but OtherTask no longer exposes a Property getter to rewrite the call site to
+        write("OtherTask.java", """
+class OtherTask {
+    public String getProperty() {
+        return null;
+    }
+
+    public void setProperty(String value) {
+    }
+}
+        """)
+        assertThat(runCached(cacheFile, listOf(task, plugin))).isEmpty()
+    }
+
+    @Test
+    fun `a cache file with a corrupt length is ignored`() {
+        val task = write("OtherTask.java", """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+        """)
+        val plugin = write("TestPlugin.java", """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+    }
+}
+        """)
+        val cacheFile = projectDir.resolve("migration-cache.bin")
+        val migrated = runCached(cacheFile, listOf(task, plugin))
+
+        // The migrated source is the only place its first line is stored, its length precedes it
+        val bytes = Files.readAllBytes(cacheFile)
+        val after = String(bytes, Charsets.ISO_8859_1).indexOf("class TestPlugin {")
+        ByteBuffer.wrap(bytes).putInt(after - 4, Int.MAX_VALUE)
+        Files.write(cacheFile, bytes)
+
+        val cache = MigrationResultCache.load(cacheFile, "test")
+        assertThat(cache.size()).isEqualTo(0)
+        assertThat(runCached(cache, listOf(task, plugin))).isEqualTo(migrated)
+        assertThat(cache.resultHitRate).isEqualTo(0.0)
+    }
+
+    @Test
+    fun `copies of a repository reuse the migration of the first one`() {
+        val memo = ContentAddressedMemo()
+        val repositories = listOf("first", "second").map { repository ->
+            val task = write("$repository/TestTask.java", """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """)
+            val changes = mutableMapOf<Path, String>()
+            val migration = StreamingProviderApiMigration(
+                MigrateToProviderApiRecipe(),
+                listOf<Supplier<out Parser<*>>>(Supplier { javaParser() }),
+                1,
+                task.parent
+            )
+            migration.setMemo(memo)
+            migration.run(listOf(task), ctx()) { changes[it.sourcePath] = it.after }
+            changes
+        }
+
+        assertThat(repositories[1]).isEqualTo(repositories[0]).hasSize(1)
+        assertThat(memo.dedupRatio).isEqualTo(0.5)
+    }
+
+    private fun runCached(cacheFile: Path, paths: List<Path>): Map<Path, String> =
+        runCached(MigrationResultCache.load(cacheFile, "test"), paths)
+
+    private fun runCached(cache: MigrationResultCache, paths: List<Path>): Map<Path, String> {
+        val changes = mutableMapOf<Path, String>()
+        val migration = StreamingProviderApiMigration(
+            MigrateToProviderApiRecipe(),
+            listOf<Supplier<out Parser<*>>>(Supplier { javaParser() }),
+            paths.size,
+            projectDir
+        )
+        migration.setResultCache(cache)
+        migration.run(paths, ctx()) { changes[it.sourcePath] = it.after }
+        cache.save()
+        return changes
+    }
+
+    private fun javaParser() = JavaParser.fromJavaVersion().classpath("gradle-api").build()
+
+    private fun groovyParser() = GroovyParser.builder().classpath("gradle-api").build()
+
+    private fun ctx() = InMemoryExecutionContext { t -> throw t }
+
+    private fun write(fileName: String, source: String): Path {
+        val file = projectDir.resolve(fileName)
+        Files.createDirectories(file.parent)
+        return Files.write(file, source.trimIndent().toByteArray())
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.SourceFile
+import org.openrewrite.TreeVisitor
+import org.openrewrite.java.JavaParser
+
+class UnchangedSourceIdentityTest {
+
+    private val ctx = InMemoryExecutionContext { t -> throw t }
+
+    private val sources: List<SourceFile> = JavaParser.fromJavaVersion()
+        .classpath("gradle-api")
+        .build()
+        .parse(ctx, """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+        """, """
+class Unrelated {
+    private String settings;
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public void reset() {
+        setSettings("default");
+    }
+}
+        """)
+
+    @Test
+    fun `migration visitors return unchanged source files as the same instance`() {
+        sources.forEach { CollectTaskPlainPropertiesVisitor().visit(it, ctx) }
+        val (task, unrelated) = sources
+
+        assertSameInstance(unrelated) { MigrateTaskPropertiesToProviderApiVisitor() }
+        assertSameInstance(unrelated) { MigratePropertySetInvocationsVisitor() }
+        assertSameInstance(unrelated) { MigrateToProviderApiVisitor() }
+        assertThat(MigrateTaskPropertiesToProviderApiVisitor().visit(task, ctx)).isNotSameAs(task)
+    }
+
+    private fun assertSameInstance(sourceFile: SourceFile, visitor: () -> TreeVisitor<*, ExecutionContext>) {
+        assertThat(visitor().visit(sourceFile, ctx)).isSameAs(sourceFile)
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+
+class ContentAddressedMemoTest {
+
+    private val dependencyHash = MigrationResultCache.contentHash(ByteArray(0))
+
+    @Test
+    fun `results beyond max bytes are not recorded`() {
+        val memo = ContentAddressedMemo(ContentAddressedMemo.DEFAULT_MAX_ENTRIES, 10)
+        // Counted in UTF-8 bytes, the umlaut takes two
+        memo.putResult(hash("first"), emptyList(), dependencyHash, "class Ä {}")
+        assertThat(memo.bytes).isEqualTo(0)
+        assertThat(memo.getResult(hash("first")) { dependencyHash }).isNull()
+
+        memo.putResult(hash("second"), emptyList(), dependencyHash, "class A {}")
+        assertThat(memo.bytes).isEqualTo(10)
+        assertThat(memo.getResult(hash("second")) { dependencyHash }!!.after).isEqualTo("class A {}")
+
+        memo.putResult(hash("third"), emptyList(), dependencyHash, "class B {}")
+        assertThat(memo.getResult(hash("third")) { dependencyHash }).isNull()
+        // Unchanged files take no bytes and are still recorded
+        memo.putResult(hash("fourth"), emptyList(), dependencyHash, null)
+        assertThat(memo.getResult(hash("fourth")) { dependencyHash }!!.isChanged).isFalse
+        assertThat(memo.bytes).isEqualTo(10)
+    }
+
+    private fun hash(content: String) = MigrationResultCache.contentHash(content.toByteArray())
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.Parser
+import org.openrewrite.java.JavaParser
+import org.openrewrite.starter.MigrateToProviderApiRecipe
+import org.openrewrite.starter.PipelinedProviderApiMigration
+import org.openrewrite.starter.StreamingProviderApiMigration
+import org.openrewrite.starter.gradle.MigrationResultCache.Declarations
+import org.openrewrite.starter.metrics.InMemoryMigrationMetrics
+import org.openrewrite.starter.metrics.MigrationMetrics
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Supplier
+
+class PersistentPropertyIndexTest {
+
+    @TempDir
+    lateinit var projectDir: Path
+
+    private val indexFile by lazy { projectDir.resolve("build/plain-properties.idx") }
+
+    // Source paths are relative to the project directory
+    private val task = Path.of("TestTask.java")
+
+    @Test
+    fun `unchanged files are served from the index and changed files are parsed again`() {
+        write("TestTask.java", task("property"))
+        val index = PersistentPropertyIndex.load(indexFile)
+        // An entry no scan would produce shows whether the file was served from the index
+        index.put(task, hash(task), declarations("indexed"))
+        index.save()
+
+        val metrics = InMemoryMigrationMetrics()
+        assertThat(collect(metrics).get("TestTask").properties).containsExactly("indexed")
+        assertThat(metrics.getCount(MigrationMetrics.Counter.INDEX_HITS)).isEqualTo(1)
+        assertThat(metrics.getCount(MigrationMetrics.Counter.COLLECT_FILES_VISITED)).isEqualTo(0)
+
+        write("TestTask.java", task("property", "other"))
+        assertThat(PersistentPropertyIndex.load(indexFile).lookup(task, hash(task))).isNull()
+        assertThat(collect().get("TestTask").properties).containsExactlyInAnyOrder("property", "other")
+        assertThat(PersistentPropertyIndex.load(indexFile).lookup(task, hash(task))!!.plainProperties)
+            .isEqualTo(mapOf("TestTask" to setOf("property", "other")))
+    }
+
+    @Test
+    fun `the pipelined migration serves unchanged files from the index`() {
+        write("TestTask.java", task("property"))
+        val index = PersistentPropertyIndex.load(indexFile)
+        index.put(task, hash(task), declarations("indexed"))
+        index.save()
+
+        val ctx = ctx()
+        val migration = PipelinedProviderApiMigration(MigrateToProviderApiRecipe(), parsers(), 10, projectDir)
+        migration.setIndex(PersistentPropertyIndex.load(indexFile))
+        migration.run(listOf(projectDir.resolve(task)), ctx) { }
+        assertThat(PlainPropertyRegistry.from(ctx).get("TestTask").properties).containsExactly("indexed")
+
+        write("TestTask.java", task("property", "other"))
+        migration.setIndex(PersistentPropertyIndex.load(indexFile))
+        migration.run(listOf(projectDir.resolve(task)), ctx()) { }
+        assertThat(PersistentPropertyIndex.load(indexFile).lookup(task, hash(task))!!.plainProperties)
+            .isEqualTo(mapOf("TestTask" to setOf("property", "other")))
+    }
+
+    @Test
+    fun `entries of removed files are dropped`() {
+        write("TestTask.java", task("property"))
+        val other = write("OtherTask.java", task("other").replace("TestTask", "OtherTask"))
+        collect()
+        assertThat(PersistentPropertyIndex.load(indexFile).plainProperties.keys).containsExactlyInAnyOrder("TestTask", "OtherTask")
+
+        Files.delete(other)
+        collect()
+        val index = PersistentPropertyIndex.load(indexFile)
+        assertThat(index.plainProperties.keys).containsExactly("TestTask")
+        assertThat(index.lookup(Path.of("OtherTask.java"), PersistentPropertyIndex.contentHash(task("other").toByteArray()))).isNull()
+    }
+
+    @Test
+    fun `a corrupt index is parsed again and rewritten`() {
+        write("TestTask.java", task("property"))
+        collect()
+
+        // The entry of the only source file starts after the header, its path and its length
+        val bytes = Files.readAllBytes(indexFile)
+        val entry = 4 * 3 + 4 + task.toString().toByteArray().size + 4
+        // Break the length of the first class name, the entry is only decoded on lookup
+        ByteBuffer.wrap(bytes).putInt(entry + 4 + 32 + 4, -1)
+        Files.write(indexFile, bytes)
+        assertThat(PersistentPropertyIndex.load(indexFile).lookup(task, hash(task))).isNull()
+        assertThat(collect().get("TestTask").properties).containsExactly("property")
+        assertThat(PersistentPropertyIndex.load(indexFile).lookup(task, hash(task))!!.plainProperties)
+            .isEqualTo(mapOf("TestTask" to setOf("property")))
+
+        // A truncated or foreign file is read as an empty index
+        Files.write(indexFile, bytes.copyOf(bytes.size / 2))
+        assertThat(PersistentPropertyIndex.load(indexFile).plainProperties).isEmpty()
+        Files.write(indexFile, "not an index".toByteArray())
+        assertThat(PersistentPropertyIndex.load(indexFile).plainProperties).isEmpty()
+        assertThat(collect().get("TestTask").properties).containsExactly("property")
+        assertThat(PersistentPropertyIndex.load(indexFile).lookup(task, hash(task))!!.plainProperties)
+            .isEqualTo(mapOf("TestTask" to setOf("property")))
+    }
+
+    private fun collect(metrics: InMemoryMigrationMetrics = InMemoryMigrationMetrics()): PlainPropertyRegistry {
+        val ctx = ctx()
+        MigrationMetrics.install(ctx, metrics)
+        val sourceFiles = projectDir.toFile().listFiles { file -> file.name.endsWith(".java") }!!.map { it.toPath() }
+        val migration = StreamingProviderApiMigration(MigrateToProviderApiRecipe(), parsers(), 10, projectDir)
+        migration.setIndex(PersistentPropertyIndex.load(indexFile))
+        migration.collect(sourceFiles, ctx)
+        return PlainPropertyRegistry.from(ctx)
+    }
+
+    private fun parsers() = listOf<Supplier<out Parser<*>>>(Supplier { JavaParser.fromJavaVersion().classpath("gradle-api").build() })
+
+    private fun declarations(vararg properties: String) =
+        Declarations(mapOf("TestTask" to properties.toSet()), emptyMap(), mapOf("TestTask" to emptyList()), emptyMap())
+
+    private fun task(vararg properties: String) = """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+${properties.joinToString("\n") { member(it) }}
+}
+    """.trimIndent()
+
+    private fun member(property: String): String {
+        val accessor = Character.toUpperCase(property[0]) + property.substring(1)
+        return """
+    private String $property;
+
+    @Input
+    public String get$accessor() {
+        return $property;
+    }
+
+    public void set$accessor(String value) {
+        this.$property = value;
+    }
+"""
+    }
+
+    private fun hash(path: Path) = PersistentPropertyIndex.contentHash(Files.readAllBytes(projectDir.resolve(path)))
+
+    private fun write(name: String, content: String): Path {
+        val path = projectDir.resolve(name)
+        Files.write(path, content.toByteArray())
+        return path
+    }
+
+    private fun ctx(): ExecutionContext = InMemoryExecutionContext { t -> throw t }
+}
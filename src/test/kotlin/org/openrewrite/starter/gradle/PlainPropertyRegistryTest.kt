@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.JavaType
+import java.util.concurrent.CountDownLatch
+import kotlin.concurrent.thread
+
+class PlainPropertyRegistryTest {
+
+    private val types: Map<String, JavaType.FullyQualified> = JavaParser.fromJavaVersion()
+        .build()
+        .parse(InMemoryExecutionContext { t -> throw t }, """
+abstract class BaseTask {
+}
+        """, """
+abstract class TestTask extends BaseTask {
+}
+        """)
+        .associate { cu -> cu.classes[0].type!!.fullyQualifiedName to cu.classes[0].type!! }
+
+    @Test
+    fun `a supertype registered after its subtype was looked up is inherited`() {
+        val registry = PlainPropertyRegistry()
+        registry.register("TestTask").add("own")
+        assertThat(registry.getInherited(types["TestTask"]).properties).containsExactly("own")
+
+        registry.register("BaseTask").add("base")
+        assertThat(registry.getInherited(types["TestTask"]).properties).containsExactlyInAnyOrder("own", "base")
+
+        registry.get("BaseTask").add("other")
+        assertThat(registry.getInherited(types["TestTask"]).properties).containsExactlyInAnyOrder("own", "base", "other")
+    }
+
+    @Test
+    fun `lookups racing with registrations don't keep a stale closure`() {
+        val registry = PlainPropertyRegistry()
+        registry.register("TestTask").add("own")
+        val start = CountDownLatch(1)
+        val lookups = (1..4).map {
+            thread {
+                start.await()
+                repeat(10_000) { registry.getInherited(types["TestTask"]) }
+            }
+        }
+        start.countDown()
+        val base = registry.register("BaseTask")
+        for (i in 0 until 1_000) {
+            base.add("property$i")
+        }
+        lookups.forEach { it.join() }
+
+        assertThat(registry.getInherited(types["TestTask"]).properties).hasSize(1_001)
+    }
+}
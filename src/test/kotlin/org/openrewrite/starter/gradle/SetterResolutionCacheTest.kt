@@ -0,0 +1,91 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.SourceFile
+import org.openrewrite.java.JavaIsoVisitor
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.J
+import org.openrewrite.starter.MigratePropertySetInvocationsRecipe
+
+class SetterResolutionCacheTest {
+
+    private val ctx: ExecutionContext = InMemoryExecutionContext { t -> throw t }
+
+    private val sources: List<SourceFile> = JavaParser.fromJavaVersion()
+        .classpath("gradle-api")
+        .build()
+        .parse(ctx, """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class TestTask {
+    @Input
+    public abstract Property<Integer> getCount();
+
+    @Input
+    public abstract Property<String> getProperty();
+}
+        """, """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setCount(1);
+        task.setCount(Integer.valueOf(2));
+        task.setProperty("Demo value");
+    }
+}
+        """)
+
+    @Test
+    fun `primitive and boxed arguments share a resolution`() {
+        MigratePropertySetInvocationsRecipe().run(sources, ctx)
+
+        val cache = SetterResolutionCache.from(ctx)
+        // setCount(int) and setCount(Integer) resolve once, setProperty(String) is another key
+        assertThat(cache.misses).isEqualTo(2)
+        assertThat(cache.hits).isEqualTo(1)
+        assertThat(cache.size()).isEqualTo(2)
+    }
+
+    @Test
+    fun `call sites served from the cache get the type of their own argument`() {
+        val after = MigratePropertySetInvocationsRecipe().run(sources, ctx)[0].after!!
+        assertThat(after.printAll()).contains(
+            "task.getCount().set(1);",
+            "task.getCount().set(Integer.valueOf(2));",
+            "task.getProperty().set(\"Demo value\");"
+        )
+
+        val setInvocations = mutableListOf<J.MethodInvocation>()
+        object : JavaIsoVisitor<MutableList<J.MethodInvocation>>() {
+            override fun visitMethodInvocation(method: J.MethodInvocation, p: MutableList<J.MethodInvocation>): J.MethodInvocation {
+                if (method.simpleName == "set") {
+                    p.add(method)
+                }
+                return super.visitMethodInvocation(method, p)
+            }
+        }.visit(after, setInvocations)
+
+        assertThat(setInvocations).hasSize(3)
+        for (set in setInvocations) {
+            assertThat(set.methodType!!.parameterTypes).containsExactly(set.arguments[0].type)
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.J
+import org.openrewrite.starter.CollectTaskPlainPropertiesVisitor
+import org.openrewrite.starter.MigrateToProviderApiRecipe
+
+class SourceFilePrefilterTest {
+
+    @Test
+    fun `nested and local classes with plain properties are accepted and migrated`() {
+        for (source in listOf(nestedTask, localTask)) {
+            val ctx = ctx()
+            val cu = parse(source)[0]
+            val prefilter = SourceFilePrefilter.from(ctx)
+            assertThat(prefilter.mayDeclarePlainProperties(cu)).isTrue
+
+            CollectTaskPlainPropertiesVisitor().visit(cu, ctx)
+            val registry = PlainPropertyRegistry.from(ctx)
+            assertThat(registry.isEmpty).isFalse
+            assertThat(prefilter.mayDeclareRegisteredClass(cu, registry)).isTrue
+
+            val results = MigrateToProviderApiRecipe().run(listOf(cu), ctx())
+            assertThat(results).hasSize(1)
+            assertThat(results[0].after!!.printAll()).contains("private final Property<String> property;")
+        }
+    }
+
+    @Test
+    fun `setter calls on a task inheriting its Property getter are accepted and rewritten`() {
+        val sources = parse("""
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+abstract class BaseTask {
+    @Input
+    public abstract Property<String> getProperty();
+}
+        """, """
+abstract class TestTask extends BaseTask {
+}
+        """, """
+class TestPlugin {
+    public void apply(TestTask task) {
+        task.setProperty("Demo value");
+    }
+}
+        """)
+        val plugin = sources[2]
+        assertThat(SourceFilePrefilter.from(ctx()).mayCallPropertySetters(plugin)).isTrue
+
+        val results = MigrateToProviderApiRecipe().run(sources, ctx())
+        assertThat(results.map { it.after!!.sourcePath.toString() }).containsExactly("TestPlugin.java")
+        assertThat(results[0].after!!.printAll()).contains("task.getProperty().set(\"Demo value\");")
+    }
+
+    @Test
+    fun `files using no Input type are rejected by every check`() {
+        val sources = parse(nestedTask, """
+class Unrelated {
+    private String settings;
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public void reset() {
+        setSettings("default");
+    }
+}
+        """)
+        val unrelated = sources[1]
+        val ctx = ctx()
+        val prefilter = SourceFilePrefilter.from(ctx)
+        CollectTaskPlainPropertiesVisitor().visit(sources[0], ctx)
+
+        assertThat(prefilter.mayDeclarePlainProperties(unrelated)).isFalse
+        assertThat(prefilter.mayDeclareRegisteredClass(unrelated, PlainPropertyRegistry.from(ctx))).isFalse
+        assertThat(prefilter.mayCallPropertySetters(unrelated)).isFalse
+        assertThat(MigrateToProviderApiRecipe().run(sources, ctx()).map { it.before!!.sourcePath.toString() })
+            .doesNotContain("Unrelated.java")
+    }
+
+    private val nestedTask = """
+import org.gradle.api.tasks.Input;
+
+class Outer {
+    static class NestedTask {
+        private String property;
+
+        @Input
+        public String getProperty() {
+            return property;
+        }
+
+        public void setProperty(String value) {
+            this.property = value;
+        }
+    }
+}
+    """
+
+    private val localTask = """
+import org.gradle.api.tasks.Input;
+
+class Outer {
+    void register() {
+        class LocalTask {
+            private String property;
+
+            @Input
+            public String getProperty() {
+                return property;
+            }
+
+            public void setProperty(String value) {
+                this.property = value;
+            }
+        }
+    }
+}
+    """
+
+    private fun parse(vararg sources: String): List<J.CompilationUnit> = JavaParser.fromJavaVersion()
+        .classpath("gradle-api")
+        .build()
+        .parse(ctx(), *sources)
+
+    private fun ctx(): ExecutionContext = InMemoryExecutionContext { t -> throw t }
+}
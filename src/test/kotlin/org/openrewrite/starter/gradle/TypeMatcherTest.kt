@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.gradle
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.J
+import org.openrewrite.java.tree.JavaType
+
+class TypeMatcherTest {
+
+    private val property = TypeMatcher.of(GradleConstants.PROPERTY_FQ)
+
+    @Test
+    fun `types match when they are, extend or implement the type`() {
+        val cu = parse("""
+import org.gradle.api.provider.Property;
+
+abstract class StringProperty implements Property<String> {
+}
+
+abstract class Derived extends StringProperty {
+}
+
+class Unrelated {
+}
+
+class Holder<T extends Derived> {
+    Property<String> property;
+    T bounded;
+}
+        """)
+        val stringProperty = classType(cu, "StringProperty")
+        val derived = classType(cu, "Derived")
+        val holder = cu.classes.first { it.simpleName == "Holder" }
+        val fields = holder.body.statements.map { (it as J.VariableDeclarations).variables[0].type }
+
+        assertThat(property.matches(stringProperty)).isTrue
+        assertThat(property.matches(derived)).isTrue
+        assertThat(property.matches(classType(cu, "Unrelated"))).isFalse
+        assertThat(property.matches(fields[0])).describedAs("parameterized Property<String>").isTrue
+        assertThat(property.matches(fields[1])).describedAs("type variable bounded by a Property").isTrue
+        assertThat(property.matches(null)).isFalse
+        assertThat(property.matches(JavaType.Primitive.Int)).isFalse
+
+        assertThat(property.matchesExactly(derived)).isFalse
+        assertThat(TypeMatcher.of("StringProperty").matchesExactly(stringProperty)).isTrue
+    }
+
+    @Test
+    fun `a class parsed twice matches through either type instance`() {
+        val source = """
+import org.gradle.api.provider.Property;
+
+abstract class Task implements Property<String> {
+}
+        """
+        val first = classType(parse(source), "Task")
+        val second = classType(parse(source), "Task")
+        assertThat(second).isNotSameAs(first)
+
+        val matcher = TypeMatcher.of(GradleConstants.PROPERTY_FQ)
+        assertThat(matcher.matches(first)).isTrue
+        val memoized = matcher.memoized()
+        assertThat(matcher.matches(second)).isTrue
+        assertThat(matcher.matches(first)).isTrue
+        // Both instances share the memo entry of their name, each one walks its supertypes when the other holds it
+        assertThat(matcher.memoized()).isEqualTo(memoized)
+    }
+
+    @Test
+    fun `a class of the same name parsed again is matched with its own supertypes`() {
+        val matcher = TypeMatcher.of(GradleConstants.PROPERTY_FQ)
+        val implementing = classType(parse("""
+import org.gradle.api.provider.Property;
+
+abstract class Task implements Property<String> {
+}
+        """), "Task")
+        val plain = classType(parse("""
+abstract class Task {
+}
+        """), "Task")
+
+        assertThat(matcher.matches(implementing)).isTrue
+        val memoized = matcher.memoized()
+        assertThat(matcher.matches(plain)).isFalse
+        assertThat(matcher.matches(implementing)).isTrue
+        // Task and java.lang.Object are memoized once by name, the other parse replaces them
+        assertThat(matcher.memoized()).isEqualTo(memoized)
+    }
+
+    @Test
+    fun `the memo is bounded`() {
+        val matcher = TypeMatcher.of(GradleConstants.PROPERTY_FQ)
+        val source = (0..TypeMatcher.MAX_MEMOIZED).joinToString("\n") { "class Task$it {}" }
+        val cu = parse(source)
+
+        for (classDecl in cu.classes) {
+            assertThat(matcher.matches(classDecl.type)).isFalse
+        }
+        assertThat(matcher.memoized()).isLessThanOrEqualTo(TypeMatcher.MAX_MEMOIZED)
+    }
+
+    private fun parse(source: String): J.CompilationUnit =
+        JavaParser.fromJavaVersion().classpath("gradle-api").build()
+            .parse(InMemoryExecutionContext { t -> throw t }, source.trimIndent())[0]
+
+    private fun classType(cu: J.CompilationUnit, simpleName: String): JavaType.FullyQualified =
+        cu.classes.first { it.simpleName == simpleName }.type!!
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter.metrics
+
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaParser
+import org.openrewrite.starter.MigrateToProviderApiRecipe
+import java.nio.file.Path
+
+class MigrationEventsTest {
+
+    @Test
+    fun `migration emits phase, source file and setter rewrite events`(@TempDir tempDir: Path) {
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        val sources = JavaParser.fromJavaVersion()
+            .classpath("gradle-api")
+            .build()
+            .parse(ctx, """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """, """
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+class OtherTask {
+    @Input
+    public Property<String> getProperty() {
+        return null;
+    }
+}
+            """, """
+class TestPlugin {
+    public void apply() {
+        OtherTask task = new OtherTask();
+        task.setProperty("Demo value");
+    }
+}
+            """)
+
+        val recording = Recording()
+        recording.use {
+            recording.enable("org.openrewrite.starter.MigrationPhase")
+            recording.enable("org.openrewrite.starter.SourceFile")
+            recording.enable("org.openrewrite.starter.SetterRewrite")
+            recording.start()
+            MigrateToProviderApiRecipe().run(sources, ctx)
+            recording.stop()
+            recording.dump(tempDir.resolve("migration.jfr"))
+        }
+
+        val events = RecordingFile.readAllEvents(tempDir.resolve("migration.jfr"))
+        assertThat(events.filter { it.eventType.name == "org.openrewrite.starter.MigrationPhase" }
+            .map { it.getString("phase") to it.getInt("sourceFiles") })
+            .containsExactly(
+                MigrationEvents.PHASE_COLLECT to 2,
+                MigrationEvents.PHASE_MIGRATE_AND_REWRITE_INVOCATIONS to 3
+            )
+        assertThat(events.filter { it.eventType.name == "org.openrewrite.starter.SourceFile" }
+            .map { it.getString("phase") + ":" + it.getString("sourcePath") + ":" + it.getString("language") })
+            .containsExactlyInAnyOrder(
+                // The plugin declares no task class, so the prefilter skips it when collecting
+                "collect:TestTask.java:java",
+                "collect:OtherTask.java:java",
+                "migrate-and-rewrite-invocations:TestTask.java:java",
+                "migrate-and-rewrite-invocations:OtherTask.java:java",
+                "migrate-and-rewrite-invocations:TestPlugin.java:java"
+            )
+        assertThat(events.filter { it.eventType.name == "org.openrewrite.starter.SetterRewrite" }
+            .map { it.getString("receiverType") + "." + it.getString("setter") + " -> " + it.getString("getter") })
+            .containsExactly("OtherTask.setProperty -> getProperty")
+    }
+
+    @Test
+    fun `a recipe run reports the metrics summary once`() {
+        val ctx = InMemoryExecutionContext { t -> throw t }
+        val summaries = mutableListOf<String>()
+        MigrationMetrics.install(ctx, InMemoryMigrationMetrics { summaries.add(it) })
+        val sources = JavaParser.fromJavaVersion()
+            .classpath("gradle-api")
+            .build()
+            .parse(ctx, """
+import org.gradle.api.tasks.Input;
+
+class TestTask {
+    private String property;
+
+    @Input
+    public String getProperty() {
+        return property;
+    }
+
+    public void setProperty(String value) {
+        this.property = value;
+    }
+}
+            """)
+
+        MigrateToProviderApiRecipe().run(sources, ctx)
+
+        assertThat(summaries).hasSize(1)
+        assertThat(summaries[0]).contains(MigrationMetrics.Counter.PROPERTIES_COLLECTED.metricName)
+    }
+}